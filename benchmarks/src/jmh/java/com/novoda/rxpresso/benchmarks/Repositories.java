@@ -0,0 +1,27 @@
+package com.novoda.rxpresso.benchmarks;
+
+import java.lang.reflect.Method;
+
+import rx.Observable;
+
+/**
+ * Gives access to the generated repositories, each one declaring a given number of Observable-returning methods.
+ */
+final class Repositories {
+
+    private static final String GENERATED_REPOSITORY = "com.novoda.rxpresso.benchmarks.generated.Repository";
+
+    private Repositories() {
+    }
+
+    static Class<?> withMethods(int methods) throws ClassNotFoundException {
+        return Class.forName(GENERATED_REPOSITORY + methods);
+    }
+
+    @SuppressWarnings("unchecked")
+    static Observable<Integer> observableFrom(Object repository, int argument) throws Exception {
+        Method method = repository.getClass().getMethod("observable0", int.class);
+        return (Observable<Integer>) method.invoke(repository, argument);
+    }
+
+}
@@ -0,0 +1,56 @@
+package com.novoda.rxpresso.benchmarks;
+
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import rx.Observable;
+import rx.Subscription;
+
+/**
+ * Measures the lookup of mocked pipelines and the injection of events into them.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RxMockBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int methods;
+
+    private RxMock rxMock;
+    private Observable<Integer> observable;
+    private Observable<Integer> source;
+
+    @Setup
+    public void setUp() throws Exception {
+        Object repository = Mockito.mock(Repositories.withMethods(methods));
+        rxMock = RxMock.from(repository);
+        observable = Repositories.observableFrom(repository, 1);
+        source = Observable.just(42);
+    }
+
+    @Benchmark
+    public boolean getEventsFor() {
+        Subscription subscription = rxMock.getEventsFor(observable).subscribe();
+        subscription.unsubscribe();
+        return subscription.isUnsubscribed();
+    }
+
+    @Benchmark
+    public Observable<Integer> sendEventsFromTo() {
+        rxMock.sendEventsFrom(source).to(observable);
+        return observable;
+    }
+
+}
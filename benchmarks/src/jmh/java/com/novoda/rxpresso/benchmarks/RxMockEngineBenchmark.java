@@ -0,0 +1,44 @@
+package com.novoda.rxpresso.benchmarks;
+
+import com.novoda.rxpresso.mock.MockEngine;
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of creating a lazy mock with each engine, as done once per test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RxMockEngineBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int methods;
+
+    @Param({"MOCKITO", "PROXY"})
+    public MockEngine engine;
+
+    private Class<?> repositoryClass;
+
+    @Setup(Level.Trial)
+    public void loadRepository() throws Exception {
+        repositoryClass = Repositories.withMethods(methods);
+    }
+
+    @Benchmark
+    public RxMock mock() {
+        return RxMock.mock(repositoryClass, engine);
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.novoda.rxpresso.benchmarks;
+
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures the cost of stubbing a freshly created Mockito mock, as done once per test.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RxMockFromBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int methods;
+
+    private Class<?> repositoryClass;
+    private Object repository;
+
+    @Setup(Level.Trial)
+    public void loadRepository() throws Exception {
+        repositoryClass = Repositories.withMethods(methods);
+    }
+
+    @Setup(Level.Invocation)
+    public void createMock() {
+        repository = Mockito.mock(repositoryClass);
+    }
+
+    @Benchmark
+    public RxMock from() {
+        return RxMock.from(repository);
+    }
+
+}
@@ -0,0 +1,46 @@
+package com.novoda.rxpresso.benchmarks;
+
+import com.novoda.rxpresso.benchmarks.generated.Repository1_RxMock;
+import com.novoda.rxpresso.benchmarks.generated.Repository500_RxMock;
+import com.novoda.rxpresso.benchmarks.generated.Repository50_RxMock;
+import com.novoda.rxpresso.mock.MockStub;
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Measures creating the generated stub of a repository and controlling it with an RxMock, to compare with {@link RxMockEngineBenchmark}.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RxMockStubBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int methods;
+
+    @Benchmark
+    public RxMock from() {
+        return RxMock.from(newStub());
+    }
+
+    private MockStub newStub() {
+        switch (methods) {
+            case 1:
+                return new Repository1_RxMock();
+            case 50:
+                return new Repository50_RxMock();
+            default:
+                return new Repository500_RxMock();
+        }
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.novoda.rxpresso.benchmarks;
+
+import android.support.test.espresso.IdlingResource;
+
+import com.novoda.rxpresso.RxPresso;
+import com.novoda.rxpresso.With;
+import com.novoda.rxpresso.mock.SingleEvent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action1;
+
+import static com.novoda.rxpresso.matcher.RxExpect.any;
+
+/**
+ * Measures the owner lookup done by {@code given}, the idleness polling done by Espresso and a full
+ * {@code given/withEventsFrom/expect} cycle against an observable the app is already subscribed to.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class RxPressoBenchmark {
+
+    @Param({"1", "50", "500"})
+    public int methods;
+
+    private RxPresso rxPresso;
+    private Observable<Integer> pendingObservable;
+    private Observable<Integer> observable;
+    private Subscription appSubscription;
+
+    @Setup(Level.Iteration)
+    public void setUp() throws Exception {
+        Object repository = Mockito.mock(Repositories.withMethods(methods));
+        rxPresso = RxPresso.from(repository);
+        rxPresso.registerIdleTransitionCallback(doNothing);
+
+        pendingObservable = Repositories.observableFrom(repository, 1);
+        rxPresso.given(pendingObservable);
+
+        observable = Repositories.observableFrom(repository, 2);
+        appSubscription = observable.subscribe(consume);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() {
+        appSubscription.unsubscribe();
+        rxPresso.resetMocks();
+    }
+
+    @Benchmark
+    public With<Integer> given() {
+        return rxPresso.given(pendingObservable);
+    }
+
+    @Benchmark
+    public boolean isIdleNow() {
+        return rxPresso.isIdleNow();
+    }
+
+    @Benchmark
+    public boolean givenWithEventsFromExpect() {
+        rxPresso.given(observable)
+                .withEventsFrom(SingleEvent.onNext(42))
+                .expect(any(Integer.class));
+        return rxPresso.isIdleNow();
+    }
+
+    private static final IdlingResource.ResourceCallback doNothing = new IdlingResource.ResourceCallback() {
+        @Override
+        public void onTransitionToIdle() {
+            //Do Nothing
+        }
+    };
+
+    private static final Action1<Integer> consume = new Action1<Integer>() {
+        @Override
+        public void call(Integer integer) {
+            //Do Nothing
+        }
+    };
+
+}
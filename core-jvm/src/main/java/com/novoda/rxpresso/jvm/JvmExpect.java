@@ -0,0 +1,217 @@
+package com.novoda.rxpresso.jvm;
+
+import com.novoda.rxpresso.matcher.RxExpect;
+import com.novoda.rxpresso.matcher.RxMatcher;
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Subscription;
+import rx.functions.Action1;
+import rx.functions.Func1;
+import rx.plugins.RxErrorRethrower;
+
+public class JvmExpect<T> {
+
+    private static final long DEFAULT_TIMEOUT_SECONDS = 5;
+
+    private final RxMock mock;
+    private final Observable<T> source;
+    private final Observable<T> observable;
+    private final boolean onDemand;
+
+    JvmExpect(RxMock mock, Observable<T> source, Observable<T> observable, boolean onDemand) {
+        this.mock = mock;
+        this.source = source;
+        this.observable = observable;
+        this.onDemand = onDemand;
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most 5 seconds until
+     * an event matching {@code matcher} goes through {@code observable}.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @return The event matching {@code matcher}
+     */
+    public Notification<T> expect(RxMatcher<Notification<T>> matcher) {
+        return expect(matcher, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most {@code timeout} until
+     * an event matching {@code matcher} goes through {@code observable}.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @param timeout The maximum time to wait for an event matching {@code matcher}
+     * @param unit    The unit of {@code timeout}
+     * @return The event matching {@code matcher}
+     */
+    public Notification<T> expect(final RxMatcher<Notification<T>> matcher, long timeout, TimeUnit unit) {
+        return await(
+                matcher.description(), new Func1<Action1<Notification<T>>, Action1<Notification<T>>>() {
+                    @Override
+                    public Action1<Notification<T>> call(Action1<Notification<T>> matched) {
+                        return RxExpect.expect(matcher, matched);
+                    }
+                }, timeout, unit
+        );
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most 5 seconds until
+     * an event goes through {@code observable}, failing if it does not match {@code matcher}.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @return The event matching {@code matcher}
+     */
+    public Notification<T> expectOnly(RxMatcher<Notification<T>> matcher) {
+        return expectOnly(matcher, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most {@code timeout} until
+     * an event goes through {@code observable}, failing if it does not match {@code matcher}.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @param timeout The maximum time to wait for an event matching {@code matcher}
+     * @param unit    The unit of {@code timeout}
+     * @return The event matching {@code matcher}
+     */
+    public Notification<T> expectOnly(final RxMatcher<Notification<T>> matcher, long timeout, TimeUnit unit) {
+        return await(
+                matcher.description(), new Func1<Action1<Notification<T>>, Action1<Notification<T>>>() {
+                    @Override
+                    public Action1<Notification<T>> call(Action1<Notification<T>> matched) {
+                        return RxExpect.expectOnly(matcher, matched);
+                    }
+                }, timeout, unit
+        );
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most 5 seconds until
+     * events matching {@code matchers} went through {@code observable} in this order, other events may be received in between.
+     *
+     * @param matchers The matchers defining the events we are expecting to receive, in order.
+     * @return The event matching the last of {@code matchers}
+     */
+    @SafeVarargs
+    public final Notification<T> expectSequence(RxMatcher<Notification<T>>... matchers) {
+        final List<RxMatcher<Notification<T>>> sequence = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            sequence.add(matcher);
+        }
+        return await(
+                "the sequence " + RxExpect.describe(sequence), new Func1<Action1<Notification<T>>, Action1<Notification<T>>>() {
+                    @Override
+                    public Action1<Notification<T>> call(Action1<Notification<T>> matched) {
+                        return RxExpect.expectSequence(sequence, matched);
+                    }
+                }, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and blocks for at most 5 seconds until
+     * an event matching each of {@code matchers} went through {@code observable}, in any order.
+     *
+     * @param matchers The matchers defining the events we are expecting to receive.
+     * @return The event matching the last of {@code matchers} to be matched
+     */
+    @SafeVarargs
+    public final Notification<T> expectInAnyOrder(RxMatcher<Notification<T>>... matchers) {
+        final List<RxMatcher<Notification<T>>> expected = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            expected.add(matcher);
+        }
+        return await(
+                RxExpect.describe(expected) + " in any order", new Func1<Action1<Notification<T>>, Action1<Notification<T>>>() {
+                    @Override
+                    public Action1<Notification<T>> call(Action1<Notification<T>> matched) {
+                        return RxExpect.expectInAnyOrder(expected, matched);
+                    }
+                }, DEFAULT_TIMEOUT_SECONDS, TimeUnit.SECONDS
+        );
+    }
+
+    /**
+     * The failure of the expectation is caught on the thread delivering the event and thrown again on the calling thread.
+     */
+    private Notification<T> await(
+            String description,
+            Func1<Action1<Notification<T>>, Action1<Notification<T>>> expectationCallingBack,
+            long timeout,
+            TimeUnit unit) {
+        final CountDownLatch done = new CountDownLatch(1);
+        final AtomicReference<Notification<T>> match = new AtomicReference<>();
+        final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        final List<Notification<T>> received = Collections.synchronizedList(new ArrayList<Notification<T>>());
+
+        final long sentAtNanos = System.nanoTime();
+        Action1<Notification<T>> matched = new Action1<Notification<T>>() {
+            @Override
+            public void call(Notification<T> notification) {
+                if (match.compareAndSet(null, notification)) {
+                    mock.recordMatch(observable, sentAtNanos);
+                }
+                done.countDown();
+            }
+        };
+        final Action1<Notification<T>> expectation = expectationCallingBack.call(matched);
+
+        RxErrorRethrower.register();
+        Subscription subscription = mock.getEventsFor(observable).subscribe(
+                new Action1<Notification<T>>() {
+                    @Override
+                    public void call(Notification<T> notification) {
+                        received.add(notification);
+                        try {
+                            expectation.call(notification);
+                        } catch (RuntimeException e) {
+                            if (match.get() == null) {
+                                failure.compareAndSet(null, e);
+                            }
+                            done.countDown();
+                        }
+                    }
+                }
+        );
+        try {
+            injectEvents();
+            if (!done.await(timeout, unit)) {
+                throw new RuntimeException(
+                        "Expected " + description + " within " + timeout + " " + unit + " but got " + received + mock.getJournal().describeForFailure()
+                );
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for " + description, e);
+        } finally {
+            subscription.unsubscribe();
+            RxErrorRethrower.unregister();
+        }
+
+        RuntimeException exception = failure.get();
+        if (exception != null) {
+            throw new RuntimeException(exception.getMessage() + mock.getJournal().describeForFailure(), exception);
+        }
+        return match.get();
+    }
+
+    private void injectEvents() {
+        RxMock.RxObservableSender<T> sender = mock.sendEventsFrom(source);
+        if (onDemand) {
+            sender.onDemand();
+        }
+        sender.to(observable);
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.novoda.rxpresso.jvm;
+
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import rx.Observable;
+
+/**
+ * Synchronous driver injecting events into mocked repositories on a plain JVM, without Espresso.
+ * Each expectation blocks the calling thread until it is matched, fails or times out.
+ * <pre>
+ * JvmRxPresso rxPresso = JvmRxPresso.from(mockedRepo);
+ * rxPresso.given(mockedRepo.getUser("id"))
+ *         .withEventsFrom(Observable.just(user))
+ *         .expect(any(User.class));
+ * </pre>
+ */
+public final class JvmRxPresso {
+
+    private final Set<RxMock> mocks = Collections.newSetFromMap(new IdentityHashMap<RxMock, Boolean>());
+
+    /**
+     * @param mocks The different mocked repositories you want to control in your tests, or the {@link RxMock}s controlling them
+     */
+    public static JvmRxPresso from(Object... mocks) {
+        JvmRxPresso rxPresso = new JvmRxPresso();
+        for (Object mock : mocks) {
+            rxPresso.mocks.add(mock instanceof RxMock ? (RxMock) mock : RxMock.from(mock));
+        }
+        return rxPresso;
+    }
+
+    private JvmRxPresso() {
+    }
+
+    public <T> JvmWith<T> given(Observable<T> observable) {
+        RxMock mock = RxMock.ownerOf(observable);
+        if (mock == null || !mocks.contains(mock)) {
+            throw new IllegalArgumentException("The observable " + observable + " is not provided by any of the mocked repositories");
+        }
+        return new JvmWith<>(mock, observable);
+    }
+
+    public void resetMocks() {
+        for (RxMock mock : mocks) {
+            mock.resetMocks();
+        }
+    }
+
+}
@@ -0,0 +1,38 @@
+package com.novoda.rxpresso.jvm;
+
+import com.novoda.rxpresso.mock.RxMock;
+
+import rx.Observable;
+
+public class JvmWith<T> {
+
+    private final RxMock mock;
+    private final Observable<T> observable;
+
+    JvmWith(RxMock mock, Observable<T> observable) {
+        this.mock = mock;
+        this.observable = observable;
+    }
+
+    /**
+     * Setup the injection of the events from the {@code source} into the mocked {@code observable}
+     *
+     * @param source An observable providing the events to inject
+     * @return A JvmExpect object to trigger the injection and wait for the expected event.
+     */
+    public JvmExpect<T> withEventsFrom(Observable<T> source) {
+        return new JvmExpect<>(mock, source, observable, false);
+    }
+
+    /**
+     * Setup the injection of the events from the {@code source} into the mocked {@code observable}, only requesting from
+     * {@code source} as many events as the subscribers of {@code observable} requested.
+     *
+     * @param source An observable providing the events to inject, it should support backpressure
+     * @return A JvmExpect object to trigger the injection and wait for the expected event.
+     */
+    public JvmExpect<T> withEventsOnDemandFrom(Observable<T> source) {
+        return new JvmExpect<>(mock, source, observable, true);
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.novoda.rxpresso.matcher;
+
+import rx.Notification;
+
+/**
+ * A matcher which can only match notifications of a single kind.
+ * Mocked observables only dispatch the notifications of that kind, and the completion, to the expectations using it.
+ */
+public interface KindMatcher<T> extends RxMatcher<Notification<T>> {
+
+    Notification.Kind kind();
+
+}
@@ -1,5 +1,9 @@
 package com.novoda.rxpresso.matcher;
 
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
 import rx.Notification;
 import rx.Observable;
 import rx.functions.Action1;
@@ -128,13 +132,140 @@ public final class RxExpect {
         };
     }
 
+    /**
+     * Returns an action to subscribe to an observable to assert if it emits elements matching {@code matchers} in this order,
+     * other elements may be emitted in between.
+     *
+     * @param matchers The matchers to use for the assertion, in the order the elements are expected
+     * @param <T>      The type of the observable
+     * @return The action to subscribe to a materialized observable to assert if the given events are emitted.
+     */
+    @SafeVarargs
+    public static <T> Action1<Notification<T>> expectSequence(RxMatcher<Notification<T>>... matchers) {
+        List<RxMatcher<Notification<T>>> sequence = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            sequence.add(matcher);
+        }
+        return expectSequence(sequence, doNothing);
+    }
+
+    /**
+     * Returns an action to subscribe to an observable to assert if it emits elements matching {@code matchers} in this order,
+     * other elements may be emitted in between. A single cursor moves through {@code matchers} as the elements are received.
+     *
+     * @param matchers The matchers to use for the assertion, in the order the elements are expected
+     * @param matched  A callback for when the last matcher is matched
+     * @param <T>      The type of the observable
+     * @return The action to subscribe to a materialized observable to assert if the given events are emitted.
+     */
+    public static <T> Action1<Notification<T>> expectSequence(
+            final List<RxMatcher<Notification<T>>> matchers,
+            final Action1<Notification<T>> matched) {
+        return new Action1<Notification<T>>() {
+
+            private int cursor;
+
+            @Override
+            public void call(Notification<T> notification) {
+                if (cursor == matchers.size()) {
+                    return;
+                }
+                if (matchers.get(cursor).matches(notification)) {
+                    cursor++;
+                    if (cursor == matchers.size()) {
+                        matched.call(notification);
+                    }
+                }
+                if (notification.getKind() == Notification.Kind.OnCompleted && cursor < matchers.size()) {
+                    throw new RuntimeException(
+                            "Expected the sequence " + describe(matchers) + " but completed after matching " + cursor + " of them"
+                    );
+                }
+            }
+        };
+    }
+
+    /**
+     * Returns an action to subscribe to an observable to assert if it emits an element matching each of {@code matchers}, in any order.
+     *
+     * @param matchers The matchers to use for the assertion
+     * @param <T>      The type of the observable
+     * @return The action to subscribe to a materialized observable to assert if the given events are emitted.
+     */
+    @SafeVarargs
+    public static <T> Action1<Notification<T>> expectInAnyOrder(RxMatcher<Notification<T>>... matchers) {
+        List<RxMatcher<Notification<T>>> expected = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            expected.add(matcher);
+        }
+        return expectInAnyOrder(expected, doNothing);
+    }
+
+    /**
+     * Returns an action to subscribe to an observable to assert if it emits an element matching each of {@code matchers}, in any order.
+     * Each element received matches at most one of the matchers not matched yet.
+     *
+     * @param matchers The matchers to use for the assertion
+     * @param matched  A callback for when every matcher is matched
+     * @param <T>      The type of the observable
+     * @return The action to subscribe to a materialized observable to assert if the given events are emitted.
+     */
+    public static <T> Action1<Notification<T>> expectInAnyOrder(
+            final List<RxMatcher<Notification<T>>> matchers,
+            final Action1<Notification<T>> matched) {
+        return new Action1<Notification<T>>() {
+
+            private final List<RxMatcher<Notification<T>>> unmatched = new ArrayList<>(matchers);
+
+            @Override
+            public void call(Notification<T> notification) {
+                if (unmatched.isEmpty()) {
+                    return;
+                }
+                for (Iterator<RxMatcher<Notification<T>>> iterator = unmatched.iterator(); iterator.hasNext(); ) {
+                    if (iterator.next().matches(notification)) {
+                        iterator.remove();
+                        if (unmatched.isEmpty()) {
+                            matched.call(notification);
+                        }
+                        break;
+                    }
+                }
+                if (notification.getKind() == Notification.Kind.OnCompleted && !unmatched.isEmpty()) {
+                    throw new RuntimeException("Expected " + describe(matchers) + " in any order but completed without matching " + describe(unmatched));
+                }
+            }
+        };
+    }
+
+    /**
+     * @param matchers The matchers to describe
+     * @param <T>      The type of the observable the matchers assert against
+     * @return The descriptions of {@code matchers}, e.g. {@code [Notification with kind OnNext, Notification with kind OnCompleted]}
+     */
+    public static <T> String describe(List<RxMatcher<Notification<T>>> matchers) {
+        StringBuilder builder = new StringBuilder("[");
+        for (int i = 0; i < matchers.size(); i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(matchers.get(i).description());
+        }
+        return builder.append(']').toString();
+    }
+
     /**
      * @param clazz The class of the type {@code T} to match
      * @param <T>   The type to match
      * @return a matcher matching any onNext event of a given type {@code T}
      */
     public static <T> RxMatcher<Notification<T>> any(Class<T> clazz) {
-        return new RxMatcher<Notification<T>>() {
+        return new KindMatcher<T>() {
+            @Override
+            public Notification.Kind kind() {
+                return Notification.Kind.OnNext;
+            }
+
             @Override
             public boolean matches(Notification<T> actual) {
                 return actual.getKind() == Notification.Kind.OnNext;
@@ -153,7 +284,12 @@ public final class RxExpect {
      * @return a matcher matching any onError event
      */
     public static <T> RxMatcher<Notification<T>> anyError(Class<T> clazz) {
-        return new RxMatcher<Notification<T>>() {
+        return new KindMatcher<T>() {
+            @Override
+            public Notification.Kind kind() {
+                return Notification.Kind.OnError;
+            }
+
             @Override
             public boolean matches(Notification<T> actual) {
                 return actual.getKind() == Notification.Kind.OnError;
@@ -174,7 +310,12 @@ public final class RxExpect {
      * @return a matcher matching any onError event with an error a given type {@code V}
      */
     public static <T, V extends Throwable> RxMatcher<Notification<T>> anyError(Class<T> clazz, final Class<V> errorClazz) {
-        return new RxMatcher<Notification<T>>() {
+        return new KindMatcher<T>() {
+            @Override
+            public Notification.Kind kind() {
+                return Notification.Kind.OnError;
+            }
+
             @Override
             public boolean matches(Notification<T> actual) {
                 return actual.hasThrowable() && actual.getThrowable().getClass().isAssignableFrom(errorClazz);
@@ -0,0 +1,28 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Notification;
+
+/**
+ * A notification injected into a pipeline, as kept by its subject and handed to each of its subscribers.
+ * It remembers whether it was dispatched already, so the listeners of the pipeline see it once however many subscribers it has.
+ */
+final class Delivery {
+
+    final Notification notification;
+
+    private final AtomicBoolean dispatched = new AtomicBoolean();
+
+    Delivery(Notification notification) {
+        this.notification = notification;
+    }
+
+    /**
+     * @return true the first time only, when this delivery reaches its first subscriber
+     */
+    boolean firstDelivery() {
+        return dispatched.compareAndSet(false, true);
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import rx.Notification;
+import rx.Observer;
+import rx.Producer;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * Tracks what the app's subscribers of a mocked observable requested, so a source injected on demand only emits
+ * as many events as the app is ready to consume.
+ * <p>
+ * Every subscriber receives every event, so the source is only asked for as many events as the subscriber with the
+ * least outstanding request can take, minus the events already requested from it and not delivered yet.
+ * Requests made before a source is attached are kept and handed to the source once it is.
+ * Nothing is requested while the pipeline has no subscriber.
+ */
+final class Demand {
+
+    private final Set<Outstanding> subscribers = Collections.newSetFromMap(new ConcurrentHashMap<Outstanding, Boolean>());
+
+    private OnDemandSubscriber<?> source;
+    private long inFlight;
+
+    /**
+     * @param subscriber A subscriber of the mocked observable, its demand is dropped when it unsubscribes
+     * @return The outstanding request of the subscriber, to set as its producer and to count the events delivered to it
+     */
+    Outstanding register(Subscriber<?> subscriber) {
+        final Outstanding outstanding = new Outstanding();
+        subscribers.add(outstanding);
+        subscriber.add(
+                Subscriptions.create(
+                        new Action0() {
+                            @Override
+                            public void call() {
+                                subscribers.remove(outstanding);
+                                requestUpstream();
+                            }
+                        }
+                )
+        );
+        return outstanding;
+    }
+
+    /**
+     * @param subject The input of the pipeline to inject events into
+     * @return A subscriber to subscribe to the source, it only requests what the app's subscribers requested
+     */
+    <T> OnDemandSubscriber<T> attach(Observer<Notification> subject) {
+        OnDemandSubscriber<T> subscriber = new OnDemandSubscriber<>(subject);
+        OnDemandSubscriber<?> previous;
+        synchronized (this) {
+            previous = source;
+            source = subscriber;
+            inFlight = 0;
+        }
+        if (previous != null) {
+            previous.unsubscribe();
+        }
+        requestUpstream();
+        return subscriber;
+    }
+
+    private void emitted(OnDemandSubscriber<?> emitter) {
+        synchronized (this) {
+            if (emitter != source) {
+                return;
+            }
+            if (inFlight != Long.MAX_VALUE) {
+                inFlight--;
+            }
+        }
+        requestUpstream();
+    }
+
+    /**
+     * Computes what can be requested under the lock and requests it outside, a source emitting synchronously
+     * on request calls back into this class.
+     */
+    private void requestUpstream() {
+        OnDemandSubscriber<?> attached;
+        long n;
+        synchronized (this) {
+            attached = source;
+            if (attached == null || inFlight == Long.MAX_VALUE) {
+                return;
+            }
+            long least = leastOutstanding();
+            if (least <= inFlight) {
+                return;
+            }
+            if (least == Long.MAX_VALUE) {
+                n = Long.MAX_VALUE;
+                inFlight = Long.MAX_VALUE;
+            } else {
+                n = least - inFlight;
+                inFlight = least;
+            }
+        }
+        attached.requestMore(n);
+    }
+
+    private long leastOutstanding() {
+        if (subscribers.isEmpty()) {
+            return 0;
+        }
+        long least = Long.MAX_VALUE;
+        for (Outstanding outstanding : subscribers) {
+            least = Math.min(least, outstanding.get());
+        }
+        return least;
+    }
+
+    /**
+     * What one subscriber requested and did not receive yet.
+     * Events delivered without being requested, like the last event replayed on subscription, still consume it.
+     */
+    final class Outstanding implements Producer {
+
+        private long requested;
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                return;
+            }
+            synchronized (Demand.this) {
+                requested = requested + n < requested ? Long.MAX_VALUE : requested + n;
+            }
+            requestUpstream();
+        }
+
+        void delivered() {
+            synchronized (Demand.this) {
+                if (requested != Long.MAX_VALUE) {
+                    requested--;
+                }
+            }
+        }
+
+        private long get() {
+            return requested;
+        }
+
+    }
+
+    final class OnDemandSubscriber<T> extends Subscriber<T> {
+
+        private final Observer<Notification> subject;
+
+        OnDemandSubscriber(Observer<Notification> subject) {
+            this.subject = subject;
+        }
+
+        @Override
+        public void onStart() {
+            request(0);
+        }
+
+        void requestMore(long n) {
+            request(n);
+        }
+
+        @Override
+        public void onCompleted() {
+            subject.onNext(Notification.createOnCompleted());
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            subject.onNext(Notification.createOnError(e));
+        }
+
+        @Override
+        public void onNext(T t) {
+            subject.onNext(Notification.createOnNext(t));
+            emitted(this);
+        }
+
+    }
+
+}
@@ -0,0 +1,83 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import rx.Notification;
+
+/**
+ * Fixed-size ring buffer of the last notifications delivered through the mocked pipelines of an {@link RxMock}.
+ * Writers never block each other, they claim a slot with a single atomic increment and overwrite the oldest entry,
+ * so the memory used stays constant however many events flow through.
+ */
+public final class EventJournal {
+
+    static final int DEFAULT_CAPACITY = 256;
+
+    private final AtomicReferenceArray<Entry> entries;
+    private final AtomicLong cursor = new AtomicLong();
+    private final int mask;
+
+    /**
+     * @param capacity The number of entries kept, rounded up to a power of two
+     */
+    EventJournal(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.entries = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    void record(String invocation, Notification.Kind kind) {
+        long sequence = cursor.getAndIncrement();
+        entries.set((int) (sequence & mask), new Entry(sequence, System.nanoTime(), Thread.currentThread().getName(), kind, invocation));
+    }
+
+    /**
+     * Entries overwritten while dumping are skipped.
+     *
+     * @return The journaled notifications from the oldest to the most recent, one per line
+     */
+    public String dump() {
+        long end = cursor.get();
+        long start = Math.max(0, end - entries.length());
+        StringBuilder builder = new StringBuilder();
+        for (long sequence = start; sequence < end; sequence++) {
+            Entry entry = entries.get((int) (sequence & mask));
+            if (entry != null && entry.sequence == sequence) {
+                builder.append(entry).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return The journaled notifications under a heading, to append to the message of a failed expectation
+     */
+    public String describeForFailure() {
+        return "\nLast events delivered:\n" + dump();
+    }
+
+    private static final class Entry {
+
+        private final long sequence;
+        private final long timestampNanos;
+        private final String thread;
+        private final Notification.Kind kind;
+        private final String invocation;
+
+        Entry(long sequence, long timestampNanos, String thread, Notification.Kind kind, String invocation) {
+            this.sequence = sequence;
+            this.timestampNanos = timestampNanos;
+            this.thread = thread;
+            this.kind = kind;
+            this.invocation = invocation;
+        }
+
+        @Override
+        public String toString() {
+            return "#" + sequence + " " + timestampNanos + "ns [" + thread + "] " + invocation + " " + kind;
+        }
+
+    }
+
+}
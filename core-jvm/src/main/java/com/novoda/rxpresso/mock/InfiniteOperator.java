@@ -6,7 +6,7 @@ import rx.Subscriber;
 class InfiniteOperator<T> implements Observable.Operator<T, T> {
     @Override
     public Subscriber<? super T> call(final Subscriber<? super T> subscriber) {
-        return new Subscriber<T>() {
+        Subscriber<T> parent = new Subscriber<T>() {
             @Override
             public void onCompleted() {
                 //Swallow
@@ -22,5 +22,8 @@ class InfiniteOperator<T> implements Observable.Operator<T, T> {
                 subscriber.onNext(t);
             }
         };
+        // Unsubscribing downstream still stops the source
+        subscriber.add(parent);
+        return parent;
     }
 }
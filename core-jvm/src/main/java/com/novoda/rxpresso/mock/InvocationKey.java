@@ -0,0 +1,155 @@
+package com.novoda.rxpresso.mock;
+
+import java.lang.reflect.Method;
+import java.util.Arrays;
+
+/**
+ * Identifies a call to a mocked method by the method and the arguments it was called with.
+ * The method is either a reflected {@link Method} or the {@link StubMethod} of a generated stub.
+ * <p>
+ * Lookups go through a per-thread reusable key so finding an existing pipeline does not allocate,
+ * only the keys stored in a registry are copied with {@link #copy()}.
+ */
+final class InvocationKey {
+
+    private static final ThreadLocal<InvocationKey> lookupKeys = new ThreadLocal<InvocationKey>() {
+        @Override
+        protected InvocationKey initialValue() {
+            return new InvocationKey();
+        }
+    };
+
+    private Object method;
+    private Object[] arguments;
+    private int hash;
+
+    private InvocationKey() {
+    }
+
+    /**
+     * @param method    The method called on the mock
+     * @param arguments The arguments it was called with
+     * @return A key only valid until the next lookup on the same thread, use {@link #copy()} to store it
+     * and {@link #release()} once done with it.
+     */
+    static InvocationKey lookupKeyFor(Object method, Object[] arguments) {
+        InvocationKey key = lookupKeys.get();
+        key.set(method, arguments);
+        return key;
+    }
+
+    private void set(Object method, Object[] arguments) {
+        this.method = method;
+        this.arguments = arguments;
+        this.hash = hashOf(method, arguments);
+    }
+
+    /**
+     * Drops the method and arguments of a lookup key, so the thread owning it doesn't keep the arguments of its last call alive.
+     */
+    void release() {
+        this.method = null;
+        this.arguments = null;
+    }
+
+    /**
+     * @return A key equal to this one that can be safely stored
+     */
+    InvocationKey copy() {
+        InvocationKey key = new InvocationKey();
+        key.method = method;
+        key.arguments = arguments.clone();
+        key.hash = hash;
+        return key;
+    }
+
+    private static int hashOf(Object method, Object[] arguments) {
+        int hash = method.hashCode();
+        for (Object argument : arguments) {
+            hash = 31 * hash + hashOf(argument);
+        }
+        return hash;
+    }
+
+    private static int hashOf(Object argument) {
+        if (argument == null) {
+            return 0;
+        }
+        if (argument.getClass().isArray()) {
+            return Arrays.deepHashCode(new Object[]{argument});
+        }
+        return argument.hashCode();
+    }
+
+    private static boolean argumentEquals(Object argument, Object other) {
+        if (argument == other) {
+            return true;
+        }
+        if (argument == null || other == null) {
+            return false;
+        }
+        if (argument.getClass().isArray()) {
+            return Arrays.deepEquals(new Object[]{argument}, new Object[]{other});
+        }
+        return argument.equals(other);
+    }
+
+    private static String toString(Object argument) {
+        if (argument instanceof Object[]) {
+            return Arrays.deepToString((Object[]) argument);
+        }
+        if (argument != null && argument.getClass().isArray()) {
+            String wrapped = Arrays.deepToString(new Object[]{argument});
+            return wrapped.substring(1, wrapped.length() - 1);
+        }
+        return String.valueOf(argument);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof InvocationKey)) {
+            return false;
+        }
+
+        InvocationKey other = (InvocationKey) o;
+
+        if (hash != other.hash) {
+            return false;
+        }
+        if (method != other.method && !method.equals(other.method)) {
+            return false;
+        }
+        if (arguments.length != other.arguments.length) {
+            return false;
+        }
+        for (int i = 0; i < arguments.length; i++) {
+            if (!argumentEquals(arguments[i], other.arguments[i])) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        String name = method instanceof Method ? ((Method) method).getName() : method.toString();
+        StringBuilder builder = new StringBuilder(name).append('(');
+        for (int i = 0; i < arguments.length; i++) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            builder.append(toString(arguments[i]));
+        }
+        return builder.append(')').toString();
+    }
+
+}
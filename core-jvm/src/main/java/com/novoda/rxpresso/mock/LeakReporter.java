@@ -0,0 +1,18 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.Map;
+
+/**
+ * Receives the mocked observables an {@link RxMock} had to tear down while they were still subscribed,
+ * see {@link RxMock#reportLeaksTo(LeakReporter)}.
+ * Their subscribers, typically from a destroyed activity, would have been retained by the pipeline without the teardown.
+ */
+public interface LeakReporter {
+
+    /**
+     * @param subscribersByInvocation The number of subscribers still subscribed to each mocked method invocation, e.g. {@code getUser(id)},
+     *                                only called when there is at least one
+     */
+    void report(Map<String, Integer> subscribersByInvocation);
+
+}
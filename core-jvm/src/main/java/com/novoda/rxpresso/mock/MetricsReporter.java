@@ -0,0 +1,13 @@
+package com.novoda.rxpresso.mock;
+
+/**
+ * Receives the metrics of an {@link RxMock} when its mocks are reset, see {@link RxMock#reportMetricsTo(MetricsReporter)}.
+ */
+public interface MetricsReporter {
+
+    /**
+     * @param json The metrics of every mocked method invocation since the previous reset, as built by {@link MockMetrics#toJson(java.util.List)}
+     */
+    void report(String json);
+
+}
@@ -0,0 +1,19 @@
+package com.novoda.rxpresso.mock;
+
+/**
+ * How {@link RxMock#mock(Class, MockEngine)} creates a mocked repository.
+ */
+public enum MockEngine {
+
+    /**
+     * A Mockito mock, for classes and interfaces. On a device it generates a class with dexmaker for each mocked type.
+     */
+    MOCKITO,
+
+    /**
+     * A {@link java.lang.reflect.Proxy} routing the calls to the mocked pipelines, for interfaces only.
+     * No bytecode is generated so it is much cheaper to create, but it can't be used with Mockito's {@code verify} or {@code when}.
+     */
+    PROXY
+
+}
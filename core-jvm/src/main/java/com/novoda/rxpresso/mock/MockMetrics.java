@@ -0,0 +1,186 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import rx.Notification;
+
+/**
+ * Runtime counters of a single mocked method invocation, e.g. {@code getUser("id")}, since the last {@link RxMock#resetMocks()}.
+ */
+public final class MockMetrics {
+
+    private final String invocation;
+    private final AtomicLong invocations = new AtomicLong();
+    private final AtomicLong subscriptions = new AtomicLong();
+    private final AtomicLong onNextDelivered = new AtomicLong();
+    private final AtomicLong onErrorDelivered = new AtomicLong();
+    private final AtomicLong onCompletedDelivered = new AtomicLong();
+    private final AtomicLong matches = new AtomicLong();
+    private final AtomicLong totalMatchLatencyNanos = new AtomicLong();
+    private final AtomicLong maxMatchLatencyNanos = new AtomicLong();
+
+    MockMetrics(String invocation) {
+        this.invocation = invocation;
+    }
+
+    /**
+     * @return The mocked method and its arguments, e.g. {@code getUser(id)}
+     */
+    public String invocation() {
+        return invocation;
+    }
+
+    /**
+     * @return How many times the mocked method was called with these arguments
+     */
+    public long invocations() {
+        return invocations.get();
+    }
+
+    /**
+     * @return How many subscriptions the mocked observable received
+     */
+    public long subscriptions() {
+        return subscriptions.get();
+    }
+
+    public long onNextDelivered() {
+        return onNextDelivered.get();
+    }
+
+    public long onErrorDelivered() {
+        return onErrorDelivered.get();
+    }
+
+    public long onCompletedDelivered() {
+        return onCompletedDelivered.get();
+    }
+
+    /**
+     * @return How many expectations on the mocked observable were matched
+     */
+    public long matches() {
+        return matches.get();
+    }
+
+    /**
+     * @return The sum of the times between injecting events and matching the expectation, over every match
+     */
+    public long totalMatchLatencyNanos() {
+        return totalMatchLatencyNanos.get();
+    }
+
+    /**
+     * @return The longest time between injecting events and matching the expectation
+     */
+    public long maxMatchLatencyNanos() {
+        return maxMatchLatencyNanos.get();
+    }
+
+    /**
+     * Records that an expectation on the mocked observable matched {@code latencyNanos} after its events were injected.
+     * Expectations report their matches through {@link RxMock#recordMatch}.
+     */
+    void recordMatch(long latencyNanos) {
+        matches.incrementAndGet();
+        totalMatchLatencyNanos.addAndGet(latencyNanos);
+        recordMaxMatchLatency(latencyNanos);
+    }
+
+    private void recordMaxMatchLatency(long latencyNanos) {
+        long max = maxMatchLatencyNanos.get();
+        while (latencyNanos > max && !maxMatchLatencyNanos.compareAndSet(max, latencyNanos)) {
+            max = maxMatchLatencyNanos.get();
+        }
+    }
+
+    /**
+     * Adds the counters of {@code metrics}, recorded by a pipeline of the same invocation which is gone, to these ones.
+     */
+    void add(MockMetrics metrics) {
+        invocations.addAndGet(metrics.invocations());
+        subscriptions.addAndGet(metrics.subscriptions());
+        onNextDelivered.addAndGet(metrics.onNextDelivered());
+        onErrorDelivered.addAndGet(metrics.onErrorDelivered());
+        onCompletedDelivered.addAndGet(metrics.onCompletedDelivered());
+        matches.addAndGet(metrics.matches());
+        totalMatchLatencyNanos.addAndGet(metrics.totalMatchLatencyNanos());
+        recordMaxMatchLatency(metrics.maxMatchLatencyNanos());
+    }
+
+    void recordInvocation() {
+        invocations.incrementAndGet();
+    }
+
+    void recordSubscription() {
+        subscriptions.incrementAndGet();
+    }
+
+    void recordDelivery(Notification.Kind kind) {
+        switch (kind) {
+            case OnNext:
+                onNextDelivered.incrementAndGet();
+                break;
+            case OnError:
+                onErrorDelivered.incrementAndGet();
+                break;
+            case OnCompleted:
+                onCompletedDelivered.incrementAndGet();
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * @param metrics The metrics to export
+     * @return A JSON array with one object per invocation
+     */
+    public static String toJson(List<MockMetrics> metrics) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < metrics.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            metrics.get(i).appendJson(json);
+        }
+        return json.append(']').toString();
+    }
+
+    private void appendJson(StringBuilder json) {
+        json.append("{\"invocation\":");
+        appendString(json, invocation);
+        json.append(",\"invocations\":").append(invocations())
+                .append(",\"subscriptions\":").append(subscriptions())
+                .append(",\"onNext\":").append(onNextDelivered())
+                .append(",\"onError\":").append(onErrorDelivered())
+                .append(",\"onCompleted\":").append(onCompletedDelivered())
+                .append(",\"matches\":").append(matches())
+                .append(",\"totalMatchLatencyNanos\":").append(totalMatchLatencyNanos())
+                .append(",\"maxMatchLatencyNanos\":").append(maxMatchLatencyNanos())
+                .append('}');
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                json.append('\\').append(c);
+            } else if (c < 0x20) {
+                json.append(String.format("\\u%04x", (int) c));
+            } else {
+                json.append(c);
+            }
+        }
+        json.append('"');
+    }
+
+    @Override
+    public String toString() {
+        return toJson(Collections.singletonList(this));
+    }
+
+}
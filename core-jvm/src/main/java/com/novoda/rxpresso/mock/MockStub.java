@@ -0,0 +1,38 @@
+package com.novoda.rxpresso.mock;
+
+import rx.Observable;
+
+/**
+ * Base class of the stubs generated for {@link RxMocked} interfaces.
+ * Their Observable-returning methods go straight to the pipelines of the {@link RxMock} controlling the stub.
+ */
+public abstract class MockStub {
+
+    protected static final Object[] NO_ARGUMENTS = new Object[0];
+
+    private volatile RxMock rxMock;
+
+    void attachTo(RxMock rxMock) {
+        this.rxMock = rxMock;
+    }
+
+    /**
+     * @param method    The method called on the stub
+     * @param arguments The arguments it was called with, they are never modified
+     * @return The mocked observable for this invocation
+     */
+    @SuppressWarnings("unchecked")
+    protected final <T> Observable<T> observableFor(StubMethod<T> method, Object[] arguments) {
+        RxMock rxMock = this.rxMock;
+        if (rxMock == null) {
+            throw new IllegalStateException(getClass().getSimpleName() + " is not controlled by an RxMock, use RxMock.from(stub) first");
+        }
+        return rxMock.observableFor(method, arguments);
+    }
+
+    @Override
+    public String toString() {
+        return "Stub " + getClass().getSimpleName() + ", hashCode: " + System.identityHashCode(this);
+    }
+
+}
@@ -0,0 +1,117 @@
+package com.novoda.rxpresso.mock;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import rx.Observable;
+
+import static org.mockito.Matchers.any;
+
+/**
+ * Process-wide cache of the Observable-returning methods of a mocked class, so the reflection needed to stub a mock
+ * is done once per class instead of once per mock.
+ */
+final class MockableMethods {
+
+    private static final ConcurrentMap<Class<?>, List<MockableMethod>> methodsByClass = new ConcurrentHashMap<>();
+    private static final Map<Class<?>, Object> primitiveDefaults = new HashMap<>();
+
+    static {
+        primitiveDefaults.put(boolean.class, false);
+        primitiveDefaults.put(char.class, '\0');
+        primitiveDefaults.put(byte.class, (byte) 0);
+        primitiveDefaults.put(short.class, (short) 0);
+        primitiveDefaults.put(int.class, 0);
+        primitiveDefaults.put(long.class, 0L);
+        primitiveDefaults.put(float.class, 0f);
+        primitiveDefaults.put(double.class, 0d);
+    }
+
+    private MockableMethods() {
+    }
+
+    /**
+     * @param clazz The class of the mock
+     * @return The public, non static methods of {@code clazz} returning an Observable
+     */
+    static List<MockableMethod> of(Class<?> clazz) {
+        List<MockableMethod> methods = methodsByClass.get(clazz);
+        if (methods == null) {
+            methods = resolveMethodsOf(clazz);
+            List<MockableMethod> cached = methodsByClass.putIfAbsent(clazz, methods);
+            if (cached != null) {
+                methods = cached;
+            }
+        }
+        return methods;
+    }
+
+    private static List<MockableMethod> resolveMethodsOf(Class<?> clazz) {
+        List<MockableMethod> methods = new ArrayList<>();
+        for (Method method : clazz.getMethods()) {
+            if (isMockable(method)) {
+                methods.add(new MockableMethod(method));
+            }
+        }
+        return Collections.unmodifiableList(methods);
+    }
+
+    /**
+     * @param method A method invoked on a mock
+     * @return true if {@code method} returns an Observable that can be replaced by a mocked pipeline
+     */
+    static boolean isMockable(Method method) {
+        return method.getReturnType().equals(Observable.class)
+                && !Modifier.isPrivate(method.getModifiers())
+                && !Modifier.isProtected(method.getModifiers())
+                && !Modifier.isStatic(method.getModifiers());
+    }
+
+    /**
+     * @param type A parameter or return type
+     * @return The default value of {@code type}, 0 or false for primitives and null otherwise
+     */
+    static Object defaultValueOf(Class<?> type) {
+        return primitiveDefaults.get(type);
+    }
+
+    static final class MockableMethod {
+
+        private final Method method;
+        private final Object[] placeholders;
+
+        private MockableMethod(Method method) {
+            this.method = method;
+            Class<?>[] parameterTypes = method.getParameterTypes();
+            this.placeholders = new Object[parameterTypes.length];
+            for (int i = 0; i < parameterTypes.length; i++) {
+                placeholders[i] = defaultValueOf(parameterTypes[i]);
+            }
+        }
+
+        Method method() {
+            return method;
+        }
+
+        /**
+         * Reports an {@code any()} matcher for each parameter of the method, to be used when stubbing it.
+         *
+         * @return The arguments to invoke the method with while stubbing
+         */
+        Object[] anyArguments() {
+            for (int i = 0; i < placeholders.length; i++) {
+                any();
+            }
+            return placeholders.clone();
+        }
+
+    }
+
+}
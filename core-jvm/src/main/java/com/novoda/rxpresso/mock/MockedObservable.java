@@ -0,0 +1,245 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Observer;
+import rx.Subscriber;
+import rx.functions.Action0;
+import rx.subjects.ClearableBehaviorSubject;
+import rx.subscriptions.CompositeSubscription;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * An Observable returned by a mocked repository.
+ * It knows the {@link RxMock} owning it and the subjects its events go through so it can be looked up in constant time.
+ * It also keeps its subscribers and the sources injecting events into it, to release all of them on {@link #tearDown()}.
+ * <p>
+ * Its owner only references it weakly, unless it is pinned: while it has subscribers, and once events were injected into it.
+ */
+final class MockedObservable<T> extends Observable<T> {
+
+    final RxMock owner;
+    final InvocationKey key;
+    final ClearableBehaviorSubject<Delivery> subject;
+    final NotificationDispatcher dispatcher;
+    final Demand demand;
+    final MockMetrics metrics;
+
+    /**
+     * Where the sources inject the notifications of this pipeline
+     */
+    final Observer<Notification> input = new Observer<Notification>() {
+        @Override
+        public void onCompleted() {
+            subject.onCompleted();
+        }
+
+        @Override
+        public void onError(Throwable e) {
+            subject.onError(e);
+        }
+
+        @Override
+        public void onNext(Notification notification) {
+            subject.onNext(new Delivery(notification));
+        }
+    };
+
+    private final Set<Subscriber<?>> subscribers = Collections.newSetFromMap(new ConcurrentHashMap<Subscriber<?>, Boolean>());
+    private final CompositeSubscription sources = new CompositeSubscription();
+
+    private boolean injected;
+    private boolean pinned;
+
+    MockedObservable(
+            RxMock owner,
+            InvocationKey key,
+            ClearableBehaviorSubject<Delivery> subject,
+            NotificationDispatcher dispatcher,
+            Demand demand,
+            MockMetrics metrics,
+            Observable<T> events) {
+        this(owner, key, subject, dispatcher, demand, metrics, new SubscribeToEvents<>(demand, metrics, events));
+    }
+
+    private MockedObservable(
+            RxMock owner,
+            InvocationKey key,
+            ClearableBehaviorSubject<Delivery> subject,
+            NotificationDispatcher dispatcher,
+            Demand demand,
+            MockMetrics metrics,
+            SubscribeToEvents<T> subscribeToEvents) {
+        super(subscribeToEvents);
+        this.owner = owner;
+        this.key = key;
+        this.subject = subject;
+        this.dispatcher = dispatcher;
+        this.demand = demand;
+        this.metrics = metrics;
+        subscribeToEvents.observable = this;
+    }
+
+    private void track(final Subscriber<?> subscriber) {
+        subscribers.add(subscriber);
+        updatePin();
+        subscriber.add(
+                Subscriptions.create(
+                        new Action0() {
+                            @Override
+                            public void call() {
+                                subscribers.remove(subscriber);
+                                updatePin();
+                            }
+                        }
+                )
+        );
+    }
+
+    /**
+     * Subscribes {@code injector} to {@code source}. The subscription is kept to be unsubscribed on {@link #tearDown()}
+     * until the source terminates, so a test injecting many sources into the same pipeline doesn't accumulate them.
+     *
+     * @param source   The observable producing the events to inject
+     * @param injector The subscriber forwarding the events of {@code source} to {@link #input}
+     */
+    <S> void inject(Observable<S> source, final Subscriber<? super S> injector) {
+        sources.add(injector);
+        injector.add(
+                Subscriptions.create(
+                        new Action0() {
+                            @Override
+                            public void call() {
+                                sources.remove(injector);
+                            }
+                        }
+                )
+        );
+        synchronized (this) {
+            injected = true;
+        }
+        updatePin();
+        source.subscribe(injector);
+    }
+
+    /**
+     * @return A subscriber forwarding the notifications of a materialized source to {@link #input}.
+     * The completion of the source isn't forwarded, so the pipeline stays open for the next source.
+     */
+    Subscriber<Notification> notificationsInjector() {
+        return new Subscriber<Notification>() {
+            @Override
+            public void onCompleted() {
+                // The OnCompleted notification of the source was already forwarded
+            }
+
+            @Override
+            public void onError(Throwable e) {
+                input.onError(e);
+            }
+
+            @Override
+            public void onNext(Notification notification) {
+                input.onNext(notification);
+            }
+        };
+    }
+
+    /**
+     * Reads the current state on each change, so whatever the order concurrent changes apply the last one leaves the pin right.
+     */
+    private synchronized void updatePin() {
+        boolean pin = injected || !subscribers.isEmpty();
+        if (pin != pinned) {
+            pinned = pin;
+            owner.pin(this, pin);
+        }
+    }
+
+    /**
+     * @return true if nothing but the registry of its owner uses this pipeline: no subscriber, and no listener waiting for its events
+     */
+    boolean isEvictable() {
+        return subscribers.isEmpty() && !dispatcher.hasListeners();
+    }
+
+    /**
+     * Stops the sources injecting events into this pipeline, when it is evicted. Whoever still holds it keeps a working observable,
+     * sources injected afterwards are kept as usual.
+     */
+    void stopSources() {
+        sources.clear();
+    }
+
+    /**
+     * @return The number of subscribers of this observable which did not unsubscribe yet
+     */
+    int subscriberCount() {
+        return subscribers.size();
+    }
+
+    /**
+     * Stops the injected sources, then completes the subject so it releases its last event and every subscriber,
+     * and finally unsubscribes the subscribers which did not unsubscribe when completed.
+     */
+    void tearDown() {
+        sources.unsubscribe();
+        subject.onCompleted();
+        for (Subscriber<?> subscriber : subscribers) {
+            subscriber.unsubscribe();
+        }
+    }
+
+    private static final class SubscribeToEvents<T> implements OnSubscribe<T> {
+
+        private final Demand demand;
+        private final MockMetrics metrics;
+        private final Observable<T> events;
+
+        private MockedObservable<T> observable;
+
+        SubscribeToEvents(Demand demand, MockMetrics metrics, Observable<T> events) {
+            this.demand = demand;
+            this.metrics = metrics;
+            this.events = events;
+        }
+
+        /**
+         * Subscribes to the events before setting the producer, so a source emitting as soon as it is requested to
+         * cannot emit before the subscriber receives the events.
+         * The subscriber was started already, it is wrapped so subscribing to the events does not start it again.
+         */
+        @Override
+        public void call(final Subscriber<? super T> subscriber) {
+            metrics.recordSubscription();
+            observable.track(subscriber);
+            final Demand.Outstanding outstanding = demand.register(subscriber);
+            events.unsafeSubscribe(
+                    new Subscriber<T>(subscriber) {
+                        @Override
+                        public void onCompleted() {
+                            subscriber.onCompleted();
+                        }
+
+                        @Override
+                        public void onError(Throwable e) {
+                            subscriber.onError(e);
+                        }
+
+                        @Override
+                        public void onNext(T t) {
+                            outstanding.delivered();
+                            subscriber.onNext(t);
+                        }
+                    }
+            );
+            subscriber.setProducer(outstanding);
+        }
+
+    }
+
+}
@@ -0,0 +1,91 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import rx.Notification;
+import rx.Subscription;
+import rx.exceptions.Exceptions;
+import rx.exceptions.OnErrorNotImplementedException;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subscriptions.Subscriptions;
+
+/**
+ * The single tap of a mocked pipeline, fanning each delivered notification out to the listeners of its kind only.
+ * Listeners are added and removed in constant time, whatever the number of listeners watching the pipeline.
+ */
+final class NotificationDispatcher {
+
+    private final Map<Notification.Kind, Set<Listener>> listenersByKind = new EnumMap<>(Notification.Kind.class);
+
+    NotificationDispatcher() {
+        for (Notification.Kind kind : Notification.Kind.values()) {
+            listenersByKind.put(kind, Collections.newSetFromMap(new ConcurrentHashMap<Listener, Boolean>()));
+        }
+    }
+
+    /**
+     * @param kinds  The kinds of notifications {@code action} receives
+     * @param action Called with each notification of one of {@code kinds} delivered through the pipeline
+     * @return A subscription removing {@code action}
+     */
+    Subscription add(final Set<Notification.Kind> kinds, Action1<Notification> action) {
+        final Listener listener = new Listener(action);
+        for (Notification.Kind kind : kinds) {
+            listenersByKind.get(kind).add(listener);
+        }
+        return Subscriptions.create(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        for (Notification.Kind kind : kinds) {
+                            listenersByKind.get(kind).remove(listener);
+                        }
+                    }
+                }
+        );
+    }
+
+    boolean hasListeners() {
+        for (Set<Listener> listeners : listenersByKind.values()) {
+            if (!listeners.isEmpty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void dispatch(Notification notification) {
+        for (Listener listener : listenersByKind.get(notification.getKind())) {
+            listener.call(notification);
+        }
+    }
+
+    /**
+     * Wraps each registration so the same action can be added several times, and fails like a subscriber without
+     * {@code onError} would, so the failure of an expectation propagates to the thread delivering the event.
+     */
+    private static final class Listener {
+
+        private final Action1<Notification> action;
+
+        Listener(Action1<Notification> action) {
+            this.action = action;
+        }
+
+        void call(Notification notification) {
+            try {
+                action.call(notification);
+            } catch (Throwable e) {
+                Exceptions.throwIfFatal(e);
+                throw new OnErrorNotImplementedException(e);
+            }
+        }
+
+    }
+
+}
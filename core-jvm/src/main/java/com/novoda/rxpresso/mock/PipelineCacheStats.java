@@ -0,0 +1,55 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of the pipelines registry of an {@link RxMock} since it was created, see {@link RxMock#limitPipelinesTo(int)}.
+ */
+public final class PipelineCacheStats {
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    PipelineCacheStats() {
+    }
+
+    void recordHit() {
+        hits.incrementAndGet();
+    }
+
+    void recordMiss() {
+        misses.incrementAndGet();
+    }
+
+    void recordEviction() {
+        evictions.incrementAndGet();
+    }
+
+    /**
+     * @return How many calls to a mocked method found the pipeline of their arguments already created
+     */
+    public long hits() {
+        return hits.get();
+    }
+
+    /**
+     * @return How many calls to a mocked method created a new pipeline
+     */
+    public long misses() {
+        return misses.get();
+    }
+
+    /**
+     * @return How many pipelines were evicted to stay under the maximum
+     */
+    public long evictions() {
+        return evictions.get();
+    }
+
+    @Override
+    public String toString() {
+        return "PipelineCacheStats{hits=" + hits() + ", misses=" + misses() + ", evictions=" + evictions() + '}';
+    }
+
+}
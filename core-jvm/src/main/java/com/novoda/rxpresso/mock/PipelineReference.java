@@ -0,0 +1,21 @@
+package com.novoda.rxpresso.mock;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+
+/**
+ * The weak reference to a pipeline held by the registry of an {@link RxMock}, it keeps the key of the pipeline
+ * to remove its entry once the pipeline is collected or evicted, and its metrics so they outlive the pipeline.
+ */
+final class PipelineReference extends WeakReference<MockedObservable> {
+
+    final InvocationKey key;
+    final MockMetrics metrics;
+
+    PipelineReference(MockedObservable observable, ReferenceQueue<MockedObservable> queue) {
+        super(observable, queue);
+        this.key = observable.key;
+        this.metrics = observable.metrics;
+    }
+
+}
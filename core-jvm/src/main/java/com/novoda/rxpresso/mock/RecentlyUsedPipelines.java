@@ -0,0 +1,62 @@
+package com.novoda.rxpresso.mock;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+/**
+ * Orders the pipelines of an {@link RxMock} from the least to the most recently used, to pick the ones to evict
+ * once there are more than a maximum. All access goes through a single lock, so it is only used when a maximum is set.
+ */
+final class RecentlyUsedPipelines {
+
+    private final int maxPipelines;
+    private final LinkedHashMap<InvocationKey, PipelineReference> pipelines = new LinkedHashMap<>(16, 0.75f, true);
+
+    RecentlyUsedPipelines(int maxPipelines) {
+        this.maxPipelines = maxPipelines;
+    }
+
+    synchronized void used(InvocationKey key) {
+        pipelines.get(key);
+    }
+
+    /**
+     * Adds a new pipeline as the most recently used one, then picks the least recently used pipelines while there are
+     * more than the maximum. Pipelines with subscribers or listeners are skipped, the maximum is exceeded if all of them have some.
+     *
+     * @return The pipelines to evict, they are already removed from this order
+     */
+    synchronized List<PipelineReference> add(PipelineReference pipeline) {
+        pipelines.put(pipeline.key, pipeline);
+        if (pipelines.size() <= maxPipelines) {
+            return Collections.emptyList();
+        }
+        List<PipelineReference> evicted = new ArrayList<>();
+        Iterator<PipelineReference> iterator = pipelines.values().iterator();
+        while (pipelines.size() > maxPipelines && iterator.hasNext()) {
+            PipelineReference candidate = iterator.next();
+            MockedObservable observable = candidate.get();
+            if (observable == null) {
+                iterator.remove();
+            } else if (candidate != pipeline && observable.isEvictable()) {
+                iterator.remove();
+                evicted.add(candidate);
+            }
+        }
+        return evicted;
+    }
+
+    synchronized void remove(PipelineReference pipeline) {
+        if (pipelines.get(pipeline.key) == pipeline) {
+            pipelines.remove(pipeline.key);
+        }
+    }
+
+    synchronized void clear() {
+        pipelines.clear();
+    }
+
+}
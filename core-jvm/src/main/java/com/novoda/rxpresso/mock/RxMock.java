@@ -0,0 +1,673 @@
+package com.novoda.rxpresso.mock;
+
+import com.novoda.rxpresso.mock.MockableMethods.MockableMethod;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.mockito.Mockito;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.CompositeException;
+import rx.exceptions.Exceptions;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.subjects.ClearableBehaviorSubject;
+import rx.subscriptions.Subscriptions;
+
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.when;
+
+public final class RxMock {
+
+    private Object mock;
+    private final ConcurrentMap<InvocationKey, PipelineReference> observableHashMap = new ConcurrentHashMap<>();
+    private final ReferenceQueue<MockedObservable> collectedPipelines = new ReferenceQueue<>();
+    private final ConcurrentMap<InvocationKey, MockMetrics> retiredMetrics = new ConcurrentHashMap<>();
+    private final Set<MockedObservable> pinnedPipelines = Collections.newSetFromMap(new ConcurrentHashMap<MockedObservable, Boolean>());
+    private final PipelineCacheStats cacheStats = new PipelineCacheStats();
+    private volatile RecentlyUsedPipelines recentlyUsedPipelines;
+    private final EventJournal journal = new EventJournal(EventJournal.DEFAULT_CAPACITY);
+    private volatile MetricsReporter metricsReporter;
+    private volatile LeakReporter leakReporter;
+
+    /**
+     * Creates a mock of {@code clazz} whose Observable-returning methods are set up lazily.
+     * A mocked pipeline is only created the first time a method is called, without stubbing every method upfront.
+     *
+     * @param clazz The class or interface of the repository to mock
+     * @return An RxMock controlling the created mock, use {@link #getMock()} to retrieve it
+     */
+    public static RxMock mock(Class clazz) {
+        return mock(clazz, MockEngine.MOCKITO);
+    }
+
+    /**
+     * Creates a mock of {@code clazz} whose Observable-returning methods are set up lazily, using the given {@code engine}.
+     *
+     * @param clazz  The class or interface of the repository to mock, it must be an interface for {@link MockEngine#PROXY}
+     * @param engine How the mock is created
+     * @return An RxMock controlling the created mock, use {@link #getMock()} to retrieve it
+     */
+    public static RxMock mock(Class clazz, MockEngine engine) {
+        RxMock rxMock = new RxMock();
+        switch (engine) {
+            case PROXY:
+                if (!clazz.isInterface()) {
+                    throw new IllegalArgumentException("Only interfaces can be mocked with " + engine + ", " + clazz.getName() + " is a class");
+                }
+                rxMock.mock = Proxy.newProxyInstance(clazz.getClassLoader(), new Class<?>[]{clazz}, rxMock.new MockedObservableHandler(clazz));
+                break;
+            default:
+                rxMock.mock = Mockito.mock(clazz, rxMock.new MockedObservableAnswer());
+                break;
+        }
+        return rxMock;
+    }
+
+    /**
+     * @param mock A Mockito mock whose Observable-returning methods will all be stubbed,
+     *             or a stub generated for an {@link RxMocked} interface which needs no stubbing
+     * @return An RxMock controlling {@code mock}
+     */
+    public static RxMock from(Object mock) {
+        RxMock rxMock = new RxMock();
+        rxMock.mock = mock;
+        if (mock instanceof MockStub) {
+            ((MockStub) mock).attachTo(rxMock);
+        } else {
+            rxMock.setMockResponses();
+        }
+        return rxMock;
+    }
+
+    private RxMock() {
+    }
+
+    /**
+     * @param <T> The type of the mocked repository
+     * @return The mocked repository controlled by this RxMock
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getMock() {
+        return (T) mock;
+    }
+
+    private void setMockResponses() {
+        for (MockableMethod method : MockableMethods.of(mock.getClass())) {
+            setupMockResponseFor(method);
+        }
+    }
+
+    /**
+     * @param observable An observable returned by a mocked repository
+     * @return The RxMock providing {@code observable} or null if it is not provided by any RxMock or was reset.
+     */
+    public static RxMock ownerOf(Observable<?> observable) {
+        if (observable instanceof MockedObservable) {
+            RxMock owner = ((MockedObservable) observable).owner;
+            if (owner.provides(observable)) {
+                return owner;
+            }
+        }
+        return null;
+    }
+
+    public <T> Boolean provides(Observable<T> observable) {
+        return mockedObservableFor(observable) != null;
+    }
+
+    private MockedObservable mockedObservableFor(Observable<?> observable) {
+        if (observable instanceof MockedObservable) {
+            MockedObservable mockedObservable = (MockedObservable) observable;
+            if (mockedObservable.owner == this && registeredFor(mockedObservable.key) == mockedObservable) {
+                return mockedObservable;
+            }
+        }
+        return null;
+    }
+
+    private MockedObservable registeredFor(InvocationKey key) {
+        PipelineReference reference = observableHashMap.get(key);
+        return reference == null ? null : reference.get();
+    }
+
+    private MockedObservable requireMockedObservableFor(Observable<?> observable) {
+        MockedObservable mockedObservable = mockedObservableFor(observable);
+        if (mockedObservable == null) {
+            throw new IllegalArgumentException(
+                    "The observable " + observable +
+                            " is not provided by this repo use the provides(Observable o) method to check first");
+        }
+        return mockedObservable;
+    }
+
+    public <T> Observable<Notification<T>> getEventsFor(final Observable<T> observable) {
+        requireMockedObservableFor(observable);
+        return Observable.create(
+                new Observable.OnSubscribe<Notification<T>>() {
+                    @Override
+                    public void call(final Subscriber<? super Notification<T>> subscriber) {
+                        subscriber.add(
+                                tapEventsFor(
+                                        observable, EnumSet.allOf(Notification.Kind.class), new Action1<Notification<T>>() {
+                                            @Override
+                                            public void call(Notification<T> notification) {
+                                                subscriber.onNext(notification);
+                                            }
+                                        }
+                                )
+                        );
+                    }
+                }
+        );
+    }
+
+    /**
+     * Listens to the notifications delivered through a mocked observable without subscribing a pipeline,
+     * every listener of an observable shares its single tap.
+     *
+     * @param observable The mocked observable to listen to
+     * @param kinds      The kinds of notifications {@code listener} is interested in, the other ones are never dispatched to it
+     * @param listener   Called with each notification of one of {@code kinds} delivered through {@code observable}
+     * @return A subscription removing {@code listener}, it also clears the last event kept by the pipeline
+     */
+    @SuppressWarnings("unchecked")
+    public <T> Subscription tapEventsFor(Observable<T> observable, Set<Notification.Kind> kinds, Action1<Notification<T>> listener) {
+        final MockedObservable mockedObservable = requireMockedObservableFor(observable);
+        final Subscription removeListener = mockedObservable.dispatcher.add(kinds, (Action1) listener);
+        return Subscriptions.create(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        removeListener.unsubscribe();
+                        mockedObservable.subject.clear();
+                    }
+                }
+        );
+    }
+
+    /**
+     * Inject the events from given {@code source} into a mocked pipeline
+     *
+     * @param source The observable producing the events to inject
+     * @param <T>    The type of this observable
+     * @return A sender object to define into which pipeline to inject the events.
+     */
+    public <T> RxObservableSender<T> sendEventsFrom(Observable<T> source) {
+        return new RxObservableSender<>(source);
+    }
+
+    public class RxObservableSender<T> {
+
+        private final Observable<T> source;
+        private boolean onDemand;
+
+        public RxObservableSender(Observable<T> source) {
+            this.source = source;
+        }
+
+        /**
+         * Only requests from {@code source} as many events as the subscribers of the mocked observable requested,
+         * instead of sending all of them straight away. This lets large sources be streamed to subscribers using backpressure.
+         *
+         * @return This sender
+         */
+        public RxObservableSender<T> onDemand() {
+            onDemand = true;
+            return this;
+        }
+
+        /**
+         * Send the events from {@code source} to the given mocked {@code observable}
+         *
+         * @param observable The mocked observable to inject events into.
+         */
+        public void to(Observable<T> observable) {
+            MockedObservable mockedObservable = requireMockedObservableFor(observable);
+            if (onDemand) {
+                mockedObservable.inject(source, mockedObservable.demand.<T>attach(mockedObservable.input));
+            } else {
+                mockedObservable.inject(source.materialize(), mockedObservable.notificationsInjector());
+            }
+        }
+
+    }
+
+    /**
+     * @return The runtime counters of every mocked method invocation since the last {@link #resetMocks()},
+     * including the ones whose observable was garbage collected
+     */
+    public List<MockMetrics> getMetrics() {
+        Set<MockMetrics> metrics = new LinkedHashSet<>();
+        for (PipelineReference reference : observableHashMap.values()) {
+            metrics.add(reference.metrics);
+        }
+        metrics.addAll(retiredMetrics.values());
+        return new ArrayList<>(metrics);
+    }
+
+    /**
+     * @param observable An observable provided by this RxMock
+     * @return The runtime counters of the mocked method invocation which returned {@code observable}
+     */
+    public MockMetrics getMetricsFor(Observable<?> observable) {
+        return requireMockedObservableFor(observable).metrics;
+    }
+
+    /**
+     * Records on the metrics of {@code observable} that an expectation matched, ignored if this RxMock doesn't provide it anymore.
+     *
+     * @param observable  The mocked observable the expectation was waiting on
+     * @param sentAtNanos The {@link System#nanoTime()} at which the events were injected
+     */
+    public void recordMatch(Observable<?> observable, long sentAtNanos) {
+        MockedObservable mockedObservable = mockedObservableFor(observable);
+        if (mockedObservable != null) {
+            mockedObservable.metrics.recordMatch(System.nanoTime() - sentAtNanos);
+        }
+    }
+
+    /**
+     * @return The journal of the last notifications delivered through the pipelines of this RxMock
+     */
+    public EventJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * @param metricsReporter Receives the metrics of this RxMock as JSON each time the mocks are reset, null to stop reporting
+     */
+    public void reportMetricsTo(MetricsReporter metricsReporter) {
+        this.metricsReporter = metricsReporter;
+    }
+
+    /**
+     * Caps the number of pipelines registered at once. Beyond {@code maxPipelines} creating a pipeline evicts the least recently
+     * used ones without subscribers or listeners: they are forgotten by this RxMock and the sources injecting events into them are stopped.
+     * A mocked observable whose pipeline was evicted is no longer {@link #provides(Observable) provided}, calling the mocked method
+     * again creates a new pipeline.
+     *
+     * @param maxPipelines The maximum number of pipelines, it can be exceeded while all of them have subscribers or listeners
+     */
+    public void limitPipelinesTo(int maxPipelines) {
+        if (maxPipelines <= 0) {
+            throw new IllegalArgumentException("The maximum number of pipelines must be positive, got " + maxPipelines);
+        }
+        RecentlyUsedPipelines recentlyUsed = new RecentlyUsedPipelines(maxPipelines);
+        for (PipelineReference reference : observableHashMap.values()) {
+            evict(recentlyUsed.add(reference));
+        }
+        recentlyUsedPipelines = recentlyUsed;
+    }
+
+    /**
+     * @return The hit, miss and eviction counters of the pipelines of this RxMock
+     */
+    public PipelineCacheStats getCacheStats() {
+        return cacheStats;
+    }
+
+    /**
+     * @param leakReporter Receives the mocked observables still subscribed each time the mocks are reset, null to stop reporting
+     */
+    public void reportLeaksTo(LeakReporter leakReporter) {
+        this.leakReporter = leakReporter;
+    }
+
+    /**
+     * Drops every mocked pipeline and tears it down: the sources injecting events are unsubscribed, and the subscribers
+     * still subscribed are completed and released along with the last event, so nothing outlives the test through a mock.
+     * <p>
+     * A subscriber throwing when completed doesn't stop the reset, its failure is rethrown once every pipeline is torn down,
+     * in a {@link CompositeException} if several subscribers threw.
+     */
+    public void resetMocks() {
+        MetricsReporter reporter = metricsReporter;
+        if (reporter != null) {
+            List<MockMetrics> metrics = getMetrics();
+            if (!metrics.isEmpty()) {
+                reporter.report(MockMetrics.toJson(metrics));
+            }
+        }
+        LeakReporter leakReporter = this.leakReporter;
+        Map<String, Integer> leaks = new LinkedHashMap<>();
+        List<Throwable> failures = new ArrayList<>();
+        for (Iterator<PipelineReference> iterator = observableHashMap.values().iterator(); iterator.hasNext(); ) {
+            MockedObservable observable = iterator.next().get();
+            iterator.remove();
+            if (observable == null) {
+                continue;
+            }
+            int subscribers = observable.subscriberCount();
+            if (leakReporter != null && subscribers > 0) {
+                String invocation = observable.metrics.invocation();
+                Integer reported = leaks.get(invocation);
+                leaks.put(invocation, reported == null ? subscribers : reported + subscribers);
+            }
+            try {
+                observable.tearDown();
+            } catch (Throwable e) {
+                failures.add(e);
+            }
+        }
+        pinnedPipelines.clear();
+        RecentlyUsedPipelines recentlyUsed = recentlyUsedPipelines;
+        if (recentlyUsed != null) {
+            recentlyUsed.clear();
+        }
+        expungeCollectedPipelines();
+        retiredMetrics.clear();
+        if (leakReporter != null && !leaks.isEmpty()) {
+            leakReporter.report(leaks);
+        }
+        if (failures.size() == 1) {
+            throw Exceptions.propagate(failures.get(0));
+        }
+        if (!failures.isEmpty()) {
+            throw new CompositeException(failures);
+        }
+    }
+
+    /**
+     * Keeps a strong reference to {@code observable} while {@code pin} is true, so it can't be garbage collected even if
+     * neither the app nor the test references it anymore, see {@link MockedObservable}.
+     */
+    void pin(MockedObservable observable, boolean pin) {
+        if (!pin) {
+            pinnedPipelines.remove(observable);
+        } else if (registeredFor(observable.key) == observable) {
+            pinnedPipelines.add(observable);
+        }
+    }
+
+    private void setupMockResponseFor(MockableMethod method) {
+        when(invoke(method)).thenAnswer(new MockedObservableAnswer());
+    }
+
+    private Object invoke(MockableMethod method) {
+        try {
+            return method.method().invoke(mock, method.anyArguments());
+        } catch (IllegalAccessException e) {
+            e.printStackTrace();
+        } catch (InvocationTargetException e) {
+            e.printStackTrace();
+        }
+        return null;
+    }
+
+    /**
+     * @param method A reflected {@link Method} or the {@link StubMethod} of a generated stub
+     * @param args   The arguments the method was called with
+     * @return The pipeline for this invocation, created on the first call
+     */
+    Observable observableFor(Object method, Object[] args) {
+        InvocationKey key = InvocationKey.lookupKeyFor(method, args);
+        MockedObservable observable;
+        try {
+            observable = registeredFor(key);
+            if (observable == null) {
+                cacheStats.recordMiss();
+                observable = initialiseMockedObservable(key.copy());
+            } else {
+                cacheStats.recordHit();
+                RecentlyUsedPipelines recentlyUsed = recentlyUsedPipelines;
+                if (recentlyUsed != null) {
+                    recentlyUsed.used(key);
+                }
+            }
+        } finally {
+            key.release();
+        }
+        observable.metrics.recordInvocation();
+        return observable;
+    }
+
+    /**
+     * Creates the pipeline for {@code key} unless another thread registered one first, in which case that one is returned.
+     * Creating a pipeline has no side effect so the one losing the race is simply dropped.
+     * <p>
+     * Pipelines are only weakly referenced, unless pinned, so the ones neither the app nor the test references anymore
+     * can be garbage collected before the mocks are reset. Their entries are removed on the next creation, and their metrics
+     * retired until a new pipeline is created for the same invocation, which carries on counting with them.
+     */
+    private MockedObservable initialiseMockedObservable(InvocationKey key) {
+        expungeCollectedPipelines();
+        ClearableBehaviorSubject<Delivery> subject = ClearableBehaviorSubject.create();
+        NotificationDispatcher dispatcher = new NotificationDispatcher();
+        Demand demand = new Demand();
+        MockMetrics retired = retiredMetrics.get(key);
+        MockMetrics metrics = retired == null ? new MockMetrics(key.toString()) : retired;
+        Observable events = subject
+                .lift(new NotifyDataEvent(dispatcher, metrics, journal))
+                .lift(new SwallowUnsubscribe());
+        MockedObservable observable = new MockedObservable(this, key, subject, dispatcher, demand, metrics, events);
+        PipelineReference reference = new PipelineReference(observable, collectedPipelines);
+        while (true) {
+            PipelineReference registered = observableHashMap.putIfAbsent(key, reference);
+            if (registered == null) {
+                retiredMetrics.remove(key, metrics);
+                return admitted(observable, reference);
+            }
+            MockedObservable registeredObservable = registered.get();
+            if (registeredObservable != null) {
+                return registeredObservable;
+            }
+            if (observableHashMap.replace(key, registered, reference)) {
+                if (registered.metrics != metrics) {
+                    metrics.add(registered.metrics);
+                }
+                retiredMetrics.remove(key, metrics);
+                return admitted(observable, reference);
+            }
+        }
+    }
+
+    private MockedObservable admitted(MockedObservable observable, PipelineReference reference) {
+        RecentlyUsedPipelines recentlyUsed = recentlyUsedPipelines;
+        if (recentlyUsed != null) {
+            evict(recentlyUsed.add(reference));
+        }
+        return observable;
+    }
+
+    private void evict(List<PipelineReference> evicted) {
+        for (PipelineReference reference : evicted) {
+            if (observableHashMap.remove(reference.key, reference)) {
+                cacheStats.recordEviction();
+                retire(reference);
+                MockedObservable observable = reference.get();
+                if (observable != null) {
+                    pinnedPipelines.remove(observable);
+                    observable.stopSources();
+                }
+            }
+        }
+    }
+
+    private void expungeCollectedPipelines() {
+        for (Reference<? extends MockedObservable> collected = collectedPipelines.poll(); collected != null; collected = collectedPipelines.poll()) {
+            PipelineReference reference = (PipelineReference) collected;
+            if (observableHashMap.remove(reference.key, reference)) {
+                retire(reference);
+            }
+            RecentlyUsedPipelines recentlyUsed = recentlyUsedPipelines;
+            if (recentlyUsed != null) {
+                recentlyUsed.remove(reference);
+            }
+        }
+    }
+
+    /**
+     * Keeps the metrics of a pipeline removed from the registry, merging them with the ones retired for the same invocation by a concurrent removal.
+     */
+    private void retire(PipelineReference reference) {
+        MockMetrics retired = retiredMetrics.putIfAbsent(reference.key, reference.metrics);
+        if (retired != null && retired != reference.metrics) {
+            retired.add(reference.metrics);
+        }
+    }
+
+    private class MockedObservableAnswer implements Answer<Object> {
+
+        @Override
+        public Object answer(InvocationOnMock invocation) throws Throwable {
+            Method method = invocation.getMethod();
+            if (MockableMethods.isMockable(method)) {
+                return observableFor(method, invocation.getArguments());
+            }
+            return RETURNS_DEFAULTS.answer(invocation);
+        }
+
+    }
+
+    /**
+     * Routes the calls to a {@link MockEngine#PROXY} mock, Object methods have the semantics of a plain object.
+     */
+    private class MockedObservableHandler implements InvocationHandler {
+
+        private final Class<?> clazz;
+
+        MockedObservableHandler(Class<?> clazz) {
+            this.clazz = clazz;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if (method.getDeclaringClass() == Object.class) {
+                return invokeObjectMethod(proxy, method, args);
+            }
+            if (MockableMethods.isMockable(method)) {
+                return observableFor(method, args == null ? new Object[0] : args);
+            }
+            return MockableMethods.defaultValueOf(method.getReturnType());
+        }
+
+        private Object invokeObjectMethod(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return "Mock for " + clazz.getSimpleName() + ", hashCode: " + System.identityHashCode(proxy);
+            }
+        }
+
+    }
+
+    /**
+     * Dematerializes the notifications of a pipeline and dispatches each one, as it is delivered, to the listeners of
+     * {@link #tapEventsFor(Observable, Set, Action1)} and to the journal. The notification stored in the subject is forwarded as is, without buffering.
+     * <p>
+     * The operator runs once per subscriber, only the first delivery of a notification dispatches it.
+     */
+    private static class NotifyDataEvent<T> implements Observable.Operator<T, Delivery> {
+
+        private final NotificationDispatcher dispatcher;
+        private final MockMetrics metrics;
+        private final EventJournal journal;
+
+        public NotifyDataEvent(NotificationDispatcher dispatcher, MockMetrics metrics, EventJournal journal) {
+            this.dispatcher = dispatcher;
+            this.metrics = metrics;
+            this.journal = journal;
+        }
+
+        @Override
+        public Subscriber<? super Delivery> call(final Subscriber<? super T> subscriber) {
+            return new Subscriber<Delivery>(subscriber) {
+
+                private boolean terminated;
+
+                @Override
+                public void onCompleted() {
+                    if (!terminated) {
+                        terminated = true;
+                        subscriber.onCompleted();
+                    }
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    if (!terminated) {
+                        terminated = true;
+                        subscriber.onError(e);
+                    }
+                }
+
+                @Override
+                @SuppressWarnings("unchecked")
+                public void onNext(Delivery delivery) {
+                    if (terminated) {
+                        return;
+                    }
+                    Notification<T> notification = delivery.notification;
+                    if (delivery.firstDelivery()) {
+                        metrics.recordDelivery(notification.getKind());
+                        journal.record(metrics.invocation(), notification.getKind());
+                        dispatcher.dispatch(notification);
+                    }
+                    switch (notification.getKind()) {
+                        case OnNext:
+                            subscriber.onNext(notification.getValue());
+                            break;
+                        case OnError:
+                            onError(notification.getThrowable());
+                            break;
+                        case OnCompleted:
+                            onCompleted();
+                            break;
+                        default:
+                            break;
+                    }
+                }
+            };
+        }
+    }
+
+    private static class SwallowUnsubscribe<T> implements Observable.Operator<T, T> {
+
+        @Override
+        public Subscriber<? super T> call(final Subscriber<? super T> subscriber) {
+            return new Subscriber<T>() {
+                @Override
+                public void onCompleted() {
+                    subscriber.onCompleted();
+                }
+
+                @Override
+                public void onError(Throwable e) {
+                    subscriber.onError(e);
+                }
+
+                @Override
+                public void onNext(T t) {
+                    subscriber.onNext(t);
+                }
+            };
+        }
+
+    }
+
+}
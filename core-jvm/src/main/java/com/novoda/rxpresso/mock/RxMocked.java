@@ -0,0 +1,20 @@
+package com.novoda.rxpresso.mock;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Marks a repository interface for which the {@code rxpresso-processor} annotation processor generates a stub,
+ * named after the interface with an {@code _RxMock} suffix, e.g. {@code DataRepository_RxMock}.
+ * <p>
+ * The stub is a plain class extending {@link MockStub}: creating it and controlling it with {@link RxMock#from(Object)}
+ * needs neither Mockito nor reflection.
+ */
+@Documented
+@Retention(RetentionPolicy.CLASS)
+@Target(ElementType.TYPE)
+public @interface RxMocked {
+}
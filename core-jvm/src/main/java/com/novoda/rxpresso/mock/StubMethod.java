@@ -0,0 +1,25 @@
+package com.novoda.rxpresso.mock;
+
+/**
+ * Identifies an Observable-returning method of a stub generated for an {@link RxMocked} interface.
+ * Each method has a single instance, held in a constant of the stub, so keys are compared by identity.
+ *
+ * @param <T> The type of the events emitted by the Observable the method returns
+ */
+public final class StubMethod<T> {
+
+    private final String name;
+
+    /**
+     * @param name The name of the method, used to describe its invocations in the metrics and the journal
+     */
+    public StubMethod(String name) {
+        this.name = name;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+}
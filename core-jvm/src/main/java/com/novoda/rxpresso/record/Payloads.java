@@ -0,0 +1,137 @@
+package com.novoda.rxpresso.record;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Encodes the value or error of a recorded notification, the payload of a record.
+ * <p>
+ * The payload starts with a tag. Strings and boxed primitives are written as is after it. Any other value is Java serialized
+ * by a stream without header which only writes the name of each class instead of its full descriptor.
+ * Each record has its own stream so it can be decoded on its own, the names of the classes are written again in every record
+ * but not their fields. The classes are looked up when replayed, they must not have changed since the recording.
+ */
+final class Payloads {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte DOUBLE = 4;
+    private static final byte BOOLEAN = 5;
+    private static final byte SERIALIZED = 6;
+
+    private Payloads() {
+    }
+
+    static byte[] encode(Object payload) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream output = new DataOutputStream(bytes);
+        if (payload == null) {
+            output.writeByte(NULL);
+        } else if (payload instanceof String) {
+            output.writeByte(STRING);
+            output.write(((String) payload).getBytes(Records.UTF_8));
+        } else if (payload instanceof Integer) {
+            output.writeByte(INTEGER);
+            output.writeInt((Integer) payload);
+        } else if (payload instanceof Long) {
+            output.writeByte(LONG);
+            output.writeLong((Long) payload);
+        } else if (payload instanceof Double) {
+            output.writeByte(DOUBLE);
+            output.writeDouble((Double) payload);
+        } else if (payload instanceof Boolean) {
+            output.writeByte(BOOLEAN);
+            output.writeBoolean((Boolean) payload);
+        } else {
+            output.writeByte(SERIALIZED);
+            ObjectOutputStream objectOutput = new CompactObjectOutputStream(output);
+            objectOutput.writeObject(payload);
+            objectOutput.flush();
+        }
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * @param payload The payload of a record, read in place
+     */
+    static Object decode(ByteBuffer payload) throws IOException, ClassNotFoundException {
+        byte tag = payload.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return Records.UTF_8.decode(payload).toString();
+            case INTEGER:
+                return payload.getInt();
+            case LONG:
+                return payload.getLong();
+            case DOUBLE:
+                return payload.getDouble();
+            case BOOLEAN:
+                return payload.get() != 0;
+            case SERIALIZED:
+                ObjectInputStream input = new CompactObjectInputStream(new ByteBufferInputStream(payload));
+                try {
+                    return input.readObject();
+                } finally {
+                    input.close();
+                }
+            default:
+                throw new IOException("Unknown payload tag " + tag);
+        }
+    }
+
+    private static final class CompactObjectOutputStream extends ObjectOutputStream {
+
+        CompactObjectOutputStream(OutputStream output) throws IOException {
+            super(output);
+        }
+
+        @Override
+        protected void writeStreamHeader() {
+            // The tag of the payload already says it is serialized
+        }
+
+        @Override
+        protected void writeClassDescriptor(ObjectStreamClass descriptor) throws IOException {
+            writeUTF(descriptor.getName());
+        }
+
+    }
+
+    private static final class CompactObjectInputStream extends ObjectInputStream {
+
+        CompactObjectInputStream(InputStream input) throws IOException {
+            super(input);
+        }
+
+        @Override
+        protected void readStreamHeader() {
+            // See CompactObjectOutputStream
+        }
+
+        @Override
+        protected ObjectStreamClass readClassDescriptor() throws IOException, ClassNotFoundException {
+            String name = readUTF();
+            ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+            Class<?> recordedClass = Class.forName(name, false, classLoader == null ? Payloads.class.getClassLoader() : classLoader);
+            ObjectStreamClass descriptor = ObjectStreamClass.lookup(recordedClass);
+            if (descriptor == null) {
+                throw new ClassNotFoundException(name + " is not Serializable anymore");
+            }
+            return descriptor;
+        }
+
+    }
+
+}
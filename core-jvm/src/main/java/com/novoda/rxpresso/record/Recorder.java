@@ -0,0 +1,124 @@
+package com.novoda.rxpresso.record;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+
+import rx.Notification;
+import rx.Observable;
+import rx.functions.Action1;
+
+/**
+ * Records the notifications emitted by a real repository into a compact binary file to be replayed with {@link Replay}.
+ * <p>
+ * The values and errors emitted must be {@link java.io.Serializable}.
+ * The notifications of every subscription are appended in order, a replay stops at the first terminal one of an invocation.
+ */
+public final class Recorder implements Closeable {
+
+    private final DataOutputStream output;
+
+    /**
+     * @param file The file to record into, it is overwritten
+     * @return A recorder writing into {@code file}, close it once done recording
+     * @throws IOException If {@code file} can't be opened for writing
+     */
+    public static Recorder to(File file) throws IOException {
+        return new Recorder(new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file))));
+    }
+
+    private Recorder(DataOutputStream output) {
+        this.output = output;
+    }
+
+    /**
+     * @param repositoryInterface The interface of the repository to record
+     * @param repository          The real repository to record the emissions of
+     * @return A repository delegating to {@code repository} and recording what its observables emit
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T record(Class<T> repositoryInterface, final T repository) {
+        return (T) Proxy.newProxyInstance(
+                repositoryInterface.getClassLoader(),
+                new Class<?>[]{repositoryInterface},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        Object result;
+                        try {
+                            result = method.invoke(repository, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getCause();
+                        }
+                        if (result != null && Records.isRecordable(method)) {
+                            return recording((Observable<?>) result, Records.invocation(method, args));
+                        }
+                        return result;
+                    }
+                }
+        );
+    }
+
+    private <T> Observable<T> recording(Observable<T> observable, final String invocation) {
+        return observable.materialize()
+                .doOnNext(
+                        new Action1<Notification<T>>() {
+                            @Override
+                            public void call(Notification<T> notification) {
+                                write(invocation, notification);
+                            }
+                        }
+                )
+                .<T>dematerialize();
+    }
+
+    private void write(String invocation, Notification<?> notification) {
+        byte[] key = invocation.getBytes(Records.UTF_8);
+        byte[] payload = serialize(notification);
+        try {
+            synchronized (output) {
+                output.writeInt(key.length);
+                output.write(key);
+                output.writeByte(notification.getKind().ordinal());
+                output.writeInt(payload.length);
+                output.write(payload);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not record " + notification + " of " + invocation, e);
+        }
+    }
+
+    private static byte[] serialize(Notification<?> notification) {
+        Object payload;
+        switch (notification.getKind()) {
+            case OnNext:
+                payload = notification.getValue();
+                break;
+            case OnError:
+                payload = notification.getThrowable();
+                break;
+            default:
+                return new byte[0];
+        }
+        try {
+            return Payloads.encode(payload);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Could not serialize " + payload + ", recorded values and errors must be Serializable", e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (output) {
+            output.close();
+        }
+    }
+
+}
@@ -0,0 +1,45 @@
+package com.novoda.rxpresso.record;
+
+import java.lang.reflect.Method;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import rx.Notification;
+import rx.Observable;
+
+/**
+ * Layout of the files written by {@link Recorder} and read by {@link Replay}.
+ * The file is a sequence of records, each one being:
+ * <pre>
+ * int    length of the invocation
+ * byte[] invocation, UTF-8 encoded, e.g. getUser[id]
+ * byte   kind of the notification, see {@link Notification.Kind#ordinal()}
+ * int    length of the payload, 0 for onCompleted
+ * byte[] payload, the value or error encoded by {@link Payloads}
+ * </pre>
+ */
+final class Records {
+
+    static final Charset UTF_8 = Charset.forName("UTF-8");
+    static final Notification.Kind[] KINDS = Notification.Kind.values();
+
+    private Records() {
+    }
+
+    static boolean isRecordable(Method method) {
+        return Observable.class.isAssignableFrom(method.getReturnType());
+    }
+
+    /**
+     * Unlike the pipelines of an {@link com.novoda.rxpresso.mock.RxMock}, which are looked up with the {@code equals} of
+     * the arguments, a recording is looked up by the text of the invocation as it has to be stored in the file.
+     * The arguments must have a {@code toString} telling apart the values which are not equal, and giving the same text
+     * for equal values in the recording and the replaying process, unlike the default {@link Object#toString()}.
+     *
+     * @return The method name followed by its arguments, e.g. {@code getUser[id]}
+     */
+    static String invocation(Method method, Object[] args) {
+        return method.getName() + Arrays.deepToString(args == null ? new Object[0] : args);
+    }
+
+}
@@ -0,0 +1,158 @@
+package com.novoda.rxpresso.record;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import rx.Notification;
+import rx.Observable;
+import rx.functions.Func1;
+
+/**
+ * Replays the notifications recorded by a {@link Recorder} from a memory-mapped file.
+ * The file is indexed once when opened, the payloads are only decoded, straight from the mapped memory, as they are requested.
+ * <pre>
+ * DataRepository recorded = Replay.from(file).of(DataRepository.class);
+ * rxPresso.given(mockedRepo.getUser("id")).withEventsFrom(recorded.getUser("id"))...
+ * </pre>
+ */
+public final class Replay {
+
+    private final MappedByteBuffer buffer;
+    private final Map<String, List<Integer>> positions;
+
+    /**
+     * @param file A file written by a {@link Recorder}
+     * @return A replay of the notifications recorded in {@code file}
+     * @throws IOException If {@code file} can't be mapped
+     */
+    public static Replay from(File file) throws IOException {
+        RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = randomAccessFile.getChannel();
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new Replay(buffer, index(buffer));
+        } finally {
+            randomAccessFile.close();
+        }
+    }
+
+    private static Map<String, List<Integer>> index(ByteBuffer buffer) {
+        Map<String, List<Integer>> positions = new HashMap<>();
+        ByteBuffer reader = buffer.duplicate();
+        while (reader.hasRemaining()) {
+            int position = reader.position();
+            byte[] key = new byte[reader.getInt()];
+            reader.get(key);
+            String invocation = new String(key, Records.UTF_8);
+            reader.get();
+            int payloadLength = reader.getInt();
+            reader.position(reader.position() + payloadLength);
+
+            List<Integer> invocationPositions = positions.get(invocation);
+            if (invocationPositions == null) {
+                invocationPositions = new ArrayList<>();
+                positions.put(invocation, invocationPositions);
+            }
+            invocationPositions.add(position);
+        }
+        return positions;
+    }
+
+    private Replay(MappedByteBuffer buffer, Map<String, List<Integer>> positions) {
+        this.buffer = buffer;
+        this.positions = positions;
+    }
+
+    /**
+     * @param repositoryInterface The interface of the recorded repository
+     * @return A repository whose observables emit what was recorded for the same method and arguments,
+     * nothing but {@code onCompleted} if nothing was recorded. Arguments are compared by their {@code toString}.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T of(final Class<T> repositoryInterface) {
+        return (T) Proxy.newProxyInstance(
+                repositoryInterface.getClassLoader(),
+                new Class<?>[]{repositoryInterface},
+                new InvocationHandler() {
+                    @Override
+                    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                        if (method.getDeclaringClass() == Object.class) {
+                            return invokeObjectMethod(proxy, method, args, repositoryInterface);
+                        }
+                        if (!Records.isRecordable(method)) {
+                            throw new UnsupportedOperationException(method + " does not return an Observable and can't be replayed");
+                        }
+                        return eventsFor(Records.invocation(method, args));
+                    }
+                }
+        );
+    }
+
+    private static Object invokeObjectMethod(Object proxy, Method method, Object[] args, Class<?> repositoryInterface) {
+        switch (method.getName()) {
+            case "equals":
+                return proxy == args[0];
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            default:
+                return "Replay of " + repositoryInterface.getSimpleName() + ", hashCode: " + System.identityHashCode(proxy);
+        }
+    }
+
+    private Observable<Object> eventsFor(String invocation) {
+        List<Integer> invocationPositions = positions.get(invocation);
+        if (invocationPositions == null) {
+            invocationPositions = Collections.emptyList();
+        }
+        return Observable.from(invocationPositions)
+                .map(
+                        new Func1<Integer, Notification<Object>>() {
+                            @Override
+                            public Notification<Object> call(Integer position) {
+                                return read(position);
+                            }
+                        }
+                )
+                .<Object>dematerialize();
+    }
+
+    private Notification<Object> read(int position) {
+        ByteBuffer reader = buffer.duplicate();
+        reader.position(position);
+        int keyLength = reader.getInt();
+        reader.position(reader.position() + keyLength);
+        Notification.Kind kind = Records.KINDS[reader.get()];
+        int payloadLength = reader.getInt();
+        ByteBuffer payload = reader.slice();
+        payload.limit(payloadLength);
+        switch (kind) {
+            case OnNext:
+                return Notification.createOnNext(deserialize(payload));
+            case OnError:
+                return Notification.createOnError((Throwable) deserialize(payload));
+            default:
+                return Notification.createOnCompleted();
+        }
+    }
+
+    private static Object deserialize(ByteBuffer payload) {
+        try {
+            return Payloads.decode(payload);
+        } catch (IOException | ClassNotFoundException e) {
+            throw new IllegalStateException("Could not read a recorded notification", e);
+        }
+    }
+
+}
@@ -0,0 +1,86 @@
+package rx.plugins;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.Subscriptions;
+
+public final class RxErrorRethrower {
+
+    private static final Object LOCK = new Object();
+
+    private static final AtomicInteger openScopes = new AtomicInteger();
+
+    private RxErrorRethrower() {
+    }
+
+    /**
+     * Registers an error handler to allow for errors to crash the tests since Espresso execution seems to prevent it from crashing.
+     * <p>
+     * The handler is installed once for the whole process and rethrows as long as at least one registration is open,
+     * so concurrent tests don't reset each other's plugins. Every call must be paired with a call to {@link #unregister()}.
+     * <p>
+     * The registrations are counted for the whole process: the error handler of RxJava is global and errors reach it
+     * on whatever thread delivered them, so it can't tell which registration an error belongs to. While a registration
+     * is open, errors from any other work in the process are rethrown as well.
+     */
+    public static void register() {
+        synchronized (LOCK) {
+            install();
+        }
+        openScopes.incrementAndGet();
+    }
+
+    /**
+     * Registers like {@link #register()}, handing the registration to whoever can close it on behalf of its owner,
+     * e.g. when an expectation is abandoned without ever being matched.
+     *
+     * @return A subscription closing the registration when unsubscribed, only the first unsubscription closes it
+     */
+    public static Subscription openScope() {
+        register();
+        return Subscriptions.create(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        unregister();
+                    }
+                }
+        );
+    }
+
+    /**
+     * Closes a registration opened by {@link #register()}, errors stop being rethrown once every registration is closed.
+     */
+    public static void unregister() {
+        int scopes;
+        do {
+            scopes = openScopes.get();
+            if (scopes == 0) {
+                return;
+            }
+        } while (!openScopes.compareAndSet(scopes, scopes - 1));
+    }
+
+    private static void install() {
+        RxJavaPlugins instance = RxJavaPlugins.getInstance();
+        if (!(instance.getErrorHandler() instanceof RethrowerJavaErrorHandler)) {
+            RxJavaSchedulersHook schedulersHook = instance.getSchedulersHook();
+            RxJavaObservableExecutionHook observableExecutionHook = instance.getObservableExecutionHook();
+            instance.reset();
+            instance.registerObservableExecutionHook(observableExecutionHook);
+            instance.registerSchedulersHook(schedulersHook);
+            instance.registerErrorHandler(new RethrowerJavaErrorHandler());
+        }
+    }
+
+    private static class RethrowerJavaErrorHandler extends RxJavaErrorHandler {
+        @Override
+        public void handleError(Throwable e) {
+            if (openScopes.get() > 0 && e instanceof RuntimeException) {
+                throw (RuntimeException) e;
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package rx.schedulers;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Scheduler reporting to a {@link TrackingSchedulersHook} when the work scheduled on a delegate scheduler starts and finishes.
+ */
+final class TrackingScheduler extends Scheduler {
+
+    private final Scheduler delegate;
+    private final TrackingSchedulersHook hook;
+
+    TrackingScheduler(Scheduler delegate, TrackingSchedulersHook hook) {
+        this.delegate = delegate;
+        this.hook = hook;
+    }
+
+    @Override
+    public Worker createWorker() {
+        return new TrackingWorker(delegate.createWorker());
+    }
+
+    @Override
+    public long now() {
+        return delegate.now();
+    }
+
+    private class TrackingWorker extends Worker {
+
+        private final Worker worker;
+        private final CompositeSubscription pending = new CompositeSubscription();
+
+        TrackingWorker(Worker worker) {
+            this.worker = worker;
+        }
+
+        @Override
+        public Subscription schedule(Action0 action) {
+            final TrackedAction trackedAction = new TrackedAction(action);
+            pending.add(trackedAction);
+            final Subscription scheduled = worker.schedule(trackedAction);
+            return new Subscription() {
+                @Override
+                public void unsubscribe() {
+                    scheduled.unsubscribe();
+                    pending.remove(trackedAction);
+                }
+
+                @Override
+                public boolean isUnsubscribed() {
+                    return scheduled.isUnsubscribed();
+                }
+            };
+        }
+
+        @Override
+        public Subscription schedule(final Action0 action, long delayTime, TimeUnit unit) {
+            if (delayTime <= 0) {
+                return schedule(action);
+            }
+            return worker.schedule(
+                    new Action0() {
+                        @Override
+                        public void call() {
+                            hook.started();
+                            try {
+                                action.call();
+                            } finally {
+                                hook.finished();
+                            }
+                        }
+                    }, delayTime, unit
+            );
+        }
+
+        @Override
+        public long now() {
+            return worker.now();
+        }
+
+        @Override
+        public void unsubscribe() {
+            worker.unsubscribe();
+            pending.unsubscribe();
+        }
+
+        @Override
+        public boolean isUnsubscribed() {
+            return worker.isUnsubscribed();
+        }
+
+        private class TrackedAction implements Action0, Subscription {
+
+            private final Action0 action;
+            private final AtomicBoolean finished = new AtomicBoolean();
+
+            TrackedAction(Action0 action) {
+                this.action = action;
+                hook.started();
+            }
+
+            @Override
+            public void call() {
+                try {
+                    action.call();
+                } finally {
+                    pending.remove(this);
+                }
+            }
+
+            @Override
+            public void unsubscribe() {
+                if (finished.compareAndSet(false, true)) {
+                    hook.finished();
+                }
+            }
+
+            @Override
+            public boolean isUnsubscribed() {
+                return finished.get();
+            }
+
+        }
+
+    }
+
+}
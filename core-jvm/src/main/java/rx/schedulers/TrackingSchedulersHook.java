@@ -0,0 +1,66 @@
+package rx.schedulers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Scheduler;
+import rx.functions.Action0;
+import rx.internal.schedulers.EventLoopsScheduler;
+import rx.plugins.RxJavaSchedulersHook;
+
+/**
+ * Schedulers hook wrapping the {@link Schedulers#io()} and {@link Schedulers#computation()} schedulers to count the work in flight on them.
+ * <p>
+ * Work scheduled without a delay is in flight from the moment it is scheduled until it ran or was unsubscribed.
+ * Delayed and periodic work is only in flight while it runs, so timeouts or intervals waiting for their next tick don't count.
+ */
+public final class TrackingSchedulersHook extends RxJavaSchedulersHook {
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Scheduler computationScheduler;
+    private final Scheduler ioScheduler;
+
+    private volatile Action0 onIdle;
+
+    public TrackingSchedulersHook() {
+        this.computationScheduler = new TrackingScheduler(new EventLoopsScheduler(), this);
+        this.ioScheduler = new TrackingScheduler(new CachedThreadScheduler(), this);
+    }
+
+    @Override
+    public Scheduler getComputationScheduler() {
+        return computationScheduler;
+    }
+
+    @Override
+    public Scheduler getIOScheduler() {
+        return ioScheduler;
+    }
+
+    /**
+     * @return The number of actions scheduled on the io and computation schedulers that did not run yet or are running.
+     */
+    public int inFlightCount() {
+        return inFlight.get();
+    }
+
+    /**
+     * @param onIdle Called every time the work in flight drops to zero
+     */
+    public void setOnIdle(Action0 onIdle) {
+        this.onIdle = onIdle;
+    }
+
+    void started() {
+        inFlight.incrementAndGet();
+    }
+
+    void finished() {
+        if (inFlight.decrementAndGet() == 0) {
+            Action0 callback = onIdle;
+            if (callback != null) {
+                callback.call();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.novoda.rxpresso;
+
+import com.novoda.rxpresso.jvm.JvmRxPresso;
+import com.novoda.rxpresso.mock.RxMock;
+import com.novoda.rxpresso.mock.SingleEvent;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.mockito.Mockito;
+
+import rx.Notification;
+import rx.Observable;
+
+import static com.novoda.rxpresso.matcher.RxExpect.any;
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class JvmRxPressoTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private TestRepository mockedRepo;
+    private JvmRxPresso rxPresso;
+
+    @Before
+    public void setUp() throws Exception {
+        mockedRepo = Mockito.mock(TestRepository.class);
+        rxPresso = JvmRxPresso.from(mockedRepo);
+    }
+
+    @Test
+    public void itBlocksUntilTheExpectedEventIsDelivered() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        Notification<Integer> notification = rxPresso.given(foo)
+                .withEventsFrom(Observable.just(42).delay(50, TimeUnit.MILLISECONDS))
+                .expect(any(Integer.class));
+
+        assertThat(notification.getValue()).isEqualTo(42);
+    }
+
+    @Test
+    public void itThrowsTheFailureOfAnExpectationOnTheCallingThread() throws Exception {
+        expectedException.expectMessage("Expected Notification with kind OnNext but got");
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.<Integer>onCompleted().delay(50, TimeUnit.MILLISECONDS))
+                .expectOnly(any(Integer.class));
+    }
+
+    @Test
+    public void itFailsIfNoEventMatchesBeforeTheTimeout() throws Exception {
+        expectedException.expectMessage("Expected Notification with kind OnNext within 50 MILLISECONDS but got []");
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(Observable.<Integer>never())
+                .expect(any(Integer.class), 50, TimeUnit.MILLISECONDS);
+    }
+
+    @Test
+    public void itChecksASequenceOfEventsWithASingleExpectation() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        Notification<Integer> last = rxPresso.given(foo)
+                .withEventsFrom(Observable.just(1, 2, 3))
+                .expectSequence(any(Integer.class), any(Integer.class), any(Integer.class));
+
+        assertThat(last.getValue()).isEqualTo(3);
+    }
+
+    @Test
+    public void itRecordsTheMatchOfAnExpectation() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42))
+                .expect(any(Integer.class));
+
+        assertThat(RxMock.ownerOf(foo).getMetricsFor(foo).matches()).isEqualTo(1);
+    }
+
+    @Test
+    public void itMatchesEachEventOnceWhateverTheNumberOfSubscribers() throws Exception {
+        expectedException.expectMessage("but completed after matching 1 of them");
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(Observable.just(42))
+                .expectSequence(any(Integer.class), any(Integer.class));
+    }
+
+    public interface TestRepository {
+        Observable<Integer> foo(int bar);
+    }
+
+}
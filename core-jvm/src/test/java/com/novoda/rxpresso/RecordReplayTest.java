@@ -0,0 +1,137 @@
+package com.novoda.rxpresso;
+
+import com.novoda.rxpresso.mock.RxMock;
+import com.novoda.rxpresso.record.Recorder;
+import com.novoda.rxpresso.record.Replay;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mockito.Mockito;
+
+import rx.Notification;
+import rx.Observable;
+import rx.functions.Func1;
+import rx.observers.TestSubscriber;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RecordReplayTest {
+
+    private static final List<Object> MIXED_VALUES = Arrays.<Object>asList(
+            null, "", 42, 42L, 4.2, true, new ArrayList<>(Arrays.asList("word0", "word1")), Notification.Kind.OnNext
+    );
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File file;
+
+    @Before
+    public void setUp() throws Exception {
+        file = temporaryFolder.newFile("fixture.bin");
+        Recorder recorder = Recorder.to(file);
+        TestRepository recording = recorder.record(TestRepository.class, new RealRepository());
+        recording.words(2).subscribe(new TestSubscriber<String>());
+        recording.words(3).subscribe(new TestSubscriber<String>());
+        recording.failing().subscribe(new TestSubscriber<String>());
+        recording.mixed().subscribe(new TestSubscriber<Object>());
+        recorder.close();
+    }
+
+    @Test
+    public void itReplaysTheRecordedNotificationsOfAnInvocation() throws Exception {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        Replay.from(file).of(TestRepository.class).words(3).subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("word0", "word1", "word2"));
+        subscriber.assertTerminalEvent();
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void itReplaysRecordedErrors() throws Exception {
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+
+        Replay.from(file).of(TestRepository.class).failing().subscribe(subscriber);
+
+        assertThat(subscriber.getOnErrorEvents()).hasSize(1);
+        assertThat(subscriber.getOnErrorEvents().get(0)).isInstanceOf(IOException.class).hasMessage("offline");
+    }
+
+    @Test
+    public void itReplaysValuesOfAnyType() throws Exception {
+        TestSubscriber<Object> subscriber = new TestSubscriber<>();
+
+        Replay.from(file).of(TestRepository.class).mixed().subscribe(subscriber);
+
+        subscriber.assertReceivedOnNext(MIXED_VALUES);
+        subscriber.assertNoErrors();
+    }
+
+    @Test
+    public void itGivesTheReplayedRepositoryThePlainObjectMethods() throws Exception {
+        Replay replay = Replay.from(file);
+        TestRepository replayed = replay.of(TestRepository.class);
+
+        assertThat(replayed).isEqualTo(replayed).isNotEqualTo(replay.of(TestRepository.class));
+        assertThat(replayed.hashCode()).isEqualTo(System.identityHashCode(replayed));
+        assertThat(replayed.toString()).startsWith("Replay of TestRepository");
+    }
+
+    @Test
+    public void itInjectsReplayedNotificationsIntoMockedObservables() throws Exception {
+        TestRepository mockedRepo = Mockito.mock(TestRepository.class);
+        RxMock rxMock = RxMock.from(mockedRepo);
+        Observable<String> words = mockedRepo.words(2);
+        TestSubscriber<String> subscriber = new TestSubscriber<>();
+        words.subscribe(subscriber);
+
+        rxMock.sendEventsFrom(Replay.from(file).of(TestRepository.class).words(2)).to(words);
+
+        subscriber.assertReceivedOnNext(Arrays.asList("word0", "word1"));
+    }
+
+    public interface TestRepository {
+        Observable<String> words(int count);
+
+        Observable<String> failing();
+
+        Observable<Object> mixed();
+    }
+
+    private static class RealRepository implements TestRepository {
+
+        @Override
+        public Observable<String> words(int count) {
+            return Observable.range(0, count).map(
+                    new Func1<Integer, String>() {
+                        @Override
+                        public String call(Integer index) {
+                            return "word" + index;
+                        }
+                    }
+            );
+        }
+
+        @Override
+        public Observable<String> failing() {
+            return Observable.error(new IOException("offline"));
+        }
+
+        @Override
+        public Observable<Object> mixed() {
+            return Observable.from(MIXED_VALUES);
+        }
+
+    }
+
+}
@@ -0,0 +1,61 @@
+package com.novoda.rxpresso;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import rx.plugins.RxErrorRethrower;
+import rx.plugins.RxJavaPlugins;
+
+public class RxErrorRethrowerTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    private int openScopes;
+
+    @After
+    public void tearDown() throws Exception {
+        while (openScopes > 0) {
+            unregister();
+        }
+    }
+
+    @Test
+    public void itKeepsRethrowingUntilEveryRegistrationIsClosed() throws Exception {
+        expectedException.expectMessage("still registered");
+        register();
+        register();
+
+        unregister();
+
+        handleError("still registered");
+    }
+
+    @Test
+    public void itStopsRethrowingOnceEveryRegistrationIsClosed() throws Exception {
+        register();
+        register();
+
+        unregister();
+        unregister();
+
+        handleError("not rethrown");
+    }
+
+    private void register() {
+        RxErrorRethrower.register();
+        openScopes++;
+    }
+
+    private void unregister() {
+        RxErrorRethrower.unregister();
+        openScopes--;
+    }
+
+    private static void handleError(String message) {
+        RxJavaPlugins.getInstance().getErrorHandler().handleError(new RuntimeException(message));
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.novoda.rxpresso;
+
+import com.novoda.rxpresso.matcher.RxMatcher;
+import com.novoda.rxpresso.mock.SingleEvent;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import rx.Notification;
+import rx.Observable;
+
+import static com.novoda.rxpresso.matcher.RxExpect.*;
+
+public class RxExpectTest {
+
+    @Rule
+    public ExpectedException expectedException = ExpectedException.none();
+
+    @Test
+    public void expectMatchesAccordingToMatcher() throws Exception {
+        Observable<Integer> observableToTest = Observable.just(42);
+
+        observableToTest.materialize()
+                .subscribe(expect(any(Integer.class)));
+    }
+
+    @Test
+    public void expectFailsIfNoEventMatchesMatcher() throws Exception {
+        expectedException.expectMessage("Expected Notification with kind OnError but completed without matching");
+
+        Observable<Integer> observableToTest = Observable.just(42);
+
+        observableToTest.materialize()
+                .subscribe(expect(anyError(Integer.class)));
+    }
+
+    @Test
+    public void expectOnlyMatchesAccordingToMatcher() throws Exception {
+        Observable<Integer> observableToTest = SingleEvent.onNext(42);
+
+        observableToTest.materialize()
+                .subscribe(expectOnly(any(Integer.class)));
+    }
+
+    @Test
+    public void expectOnlyFailsIfAnEventDoesNotMatchMatcher() throws Exception {
+        expectedException.expectMessage("Expected Notification with kind OnNext but got");
+        Observable<Integer> observableToTest = Observable.just(42);
+
+        observableToTest.materialize()
+                .subscribe(expectOnly(any(Integer.class)));
+    }
+
+    @Test
+    public void expectSequenceMatchesEventsInOrder() throws Exception {
+        Observable<Integer> observableToTest = Observable.just(1, 2, 3);
+
+        observableToTest.materialize()
+                .subscribe(expectSequence(value(1), value(3)));
+    }
+
+    @Test
+    public void expectSequenceFailsIfEventsAreReceivedInAnotherOrder() throws Exception {
+        expectedException.expectMessage("Expected the sequence [Value 3, Value 1] but completed after matching 1 of them");
+        Observable<Integer> observableToTest = Observable.just(1, 2, 3);
+
+        observableToTest.materialize()
+                .subscribe(expectSequence(value(3), value(1)));
+    }
+
+    @Test
+    public void expectInAnyOrderMatchesEventsInAnyOrder() throws Exception {
+        Observable<Integer> observableToTest = Observable.just(1, 2, 3);
+
+        observableToTest.materialize()
+                .subscribe(expectInAnyOrder(value(3), value(1)));
+    }
+
+    @Test
+    public void expectInAnyOrderFailsIfAnEventIsMissing() throws Exception {
+        expectedException.expectMessage("Expected [Value 3, Value 4] in any order but completed without matching [Value 4]");
+        Observable<Integer> observableToTest = Observable.just(1, 2, 3);
+
+        observableToTest.materialize()
+                .subscribe(expectInAnyOrder(value(3), value(4)));
+    }
+
+    private static RxMatcher<Notification<Integer>> value(final int value) {
+        return new RxMatcher<Notification<Integer>>() {
+            @Override
+            public boolean matches(Notification<Integer> actual) {
+                return actual.hasValue() && actual.getValue() == value;
+            }
+
+            @Override
+            public String description() {
+                return "Value " + value;
+            }
+        };
+    }
+}
@@ -0,0 +1,725 @@
+package com.novoda.rxpresso;
+
+import com.novoda.rxpresso.mock.LeakReporter;
+import com.novoda.rxpresso.mock.MetricsReporter;
+import com.novoda.rxpresso.mock.MockEngine;
+import com.novoda.rxpresso.mock.MockMetrics;
+import com.novoda.rxpresso.mock.PipelineCacheStats;
+import com.novoda.rxpresso.mock.RxMock;
+import com.novoda.rxpresso.mock.SingleEvent;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Array;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.Mockito;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Subscriber;
+import rx.Subscription;
+import rx.exceptions.CompositeException;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.observers.TestSubscriber;
+import rx.schedulers.Schedulers;
+import rx.subjects.PublishSubject;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
+
+public class RxMocksTest {
+
+    private TestRepository mockedRepo;
+    private RxMock rxMock;
+
+    @Before
+    public void setUp() throws Exception {
+        mockedRepo = Mockito.mock(TestRepository.class);
+        rxMock = RxMock.from(mockedRepo);
+    }
+
+    @Test
+    public void itSendsEventsToMockedObservable() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+
+        Integer result = foo.toBlocking().first();
+
+        assertThat(result).isEqualTo(42);
+    }
+
+    @Test
+    public void itSendsEventsToMockedObservableAccordingToParameter() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(1);
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+        rxMock.sendEventsFrom(SingleEvent.onNext(24))
+                .to(bar);
+
+        Integer result = foo.toBlocking().first();
+        Integer result2 = bar.toBlocking().first();
+
+        assertThat(result).isEqualTo(42);
+        assertThat(result2).isEqualTo(24);
+    }
+
+    @Test
+    public void itDeterminesWetherAnObservableIsProvidedByAGivenRepository() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+
+        boolean result = rxMock.provides(foo);
+        boolean result2 = rxMock.provides(Observable.just(1));
+
+        assertThat(result).isTrue();
+        assertThat(result2).isFalse();
+    }
+
+    @Test
+    public void itProvidesTheSameObservableForTheSameMethodParamCombination() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(3);
+
+        assertThat(foo).isEqualTo(bar);
+    }
+
+    @Test
+    public void itStubsEveryMockOfTheSameRepositoryType() throws Exception {
+        TestRepository anotherMockedRepo = Mockito.mock(TestRepository.class);
+        RxMock anotherRxMock = RxMock.from(anotherMockedRepo);
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> anotherFoo = anotherMockedRepo.foo(3);
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+        anotherRxMock.sendEventsFrom(SingleEvent.onNext(24))
+                .to(anotherFoo);
+
+        assertThat(foo.toBlocking().first()).isEqualTo(42);
+        assertThat(anotherFoo.toBlocking().first()).isEqualTo(24);
+    }
+
+    @Test
+    public void itProvidesTheSameObservableToConcurrentCallers() throws Exception {
+        int callers = 8;
+        final CyclicBarrier barrier = new CyclicBarrier(callers);
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        List<Future<Observable<Integer>>> results = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            results.add(
+                    executor.submit(
+                            new Callable<Observable<Integer>>() {
+                                @Override
+                                public Observable<Integer> call() throws Exception {
+                                    barrier.await();
+                                    return mockedRepo.foo(3);
+                                }
+                            }
+                    )
+            );
+        }
+        executor.shutdown();
+
+        Observable<Integer> foo = mockedRepo.foo(3);
+        for (Future<Observable<Integer>> result : results) {
+            assertThat(result.get()).isSameAs(foo);
+        }
+    }
+
+    @Test
+    public void itProvidesDifferentObservablesForArgumentsWithTheSameHashCode() throws Exception {
+        Observable<Integer> foo = mockedRepo.baz("Aa");
+        Observable<Integer> bar = mockedRepo.baz("BB");
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+        rxMock.sendEventsFrom(SingleEvent.onNext(24))
+                .to(bar);
+
+        assertThat(foo).isNotEqualTo(bar);
+        assertThat(foo.toBlocking().first()).isEqualTo(42);
+        assertThat(bar.toBlocking().first()).isEqualTo(24);
+    }
+
+    @Test
+    public void itSetsUpPipelinesOnFirstCallWhenMockingLazily() throws Exception {
+        RxMock lazyRxMock = RxMock.mock(TestRepository.class);
+        TestRepository lazilyMockedRepo = lazyRxMock.getMock();
+        Observable<Integer> foo = lazilyMockedRepo.foo(3);
+
+        lazyRxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+
+        assertThat(foo.toBlocking().first()).isEqualTo(42);
+        assertThat(lazilyMockedRepo.foo(3)).isEqualTo(foo);
+    }
+
+    @Test
+    public void itMocksInterfacesWithAProxy() throws Exception {
+        RxMock proxyRxMock = RxMock.mock(TestRepository.class, MockEngine.PROXY);
+        TestRepository proxiedRepo = proxyRxMock.getMock();
+        Observable<Integer> foo = proxiedRepo.foo(3);
+
+        proxyRxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+
+        assertThat(foo.toBlocking().first()).isEqualTo(42);
+        assertThat(proxiedRepo.foo(3)).isEqualTo(foo);
+        assertThat(proxiedRepo.foo(1)).isNotEqualTo(foo);
+        assertThat(proxiedRepo).isEqualTo(proxiedRepo).isNotEqualTo(mockedRepo);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void itOnlyMocksInterfacesWithAProxy() throws Exception {
+        RxMock.mock(Object.class, MockEngine.PROXY);
+    }
+
+    @Test
+    public void resetMocksResetsPipelines() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+
+        rxMock.resetMocks();
+
+        Observable<Integer> bar = mockedRepo.foo(3);
+
+        rxMock.sendEventsFrom(SingleEvent.<Integer>onCompleted())
+                .to(bar);
+
+        Boolean result = bar.isEmpty().toBlocking().first();
+
+        assertThat(result).isTrue();
+    }
+
+    @Test
+    public void getEventsForDoesNotAffectSubscriptionToMockeObservables() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+
+        final Notification<Integer>[] test = (Notification<Integer>[]) Array.newInstance(Notification.class, 1);
+        rxMock.getEventsFor(foo)
+                .subscribe(
+                        new Action1<Notification<Integer>>() {
+                            @Override
+                            public void call(Notification<Integer> integerNotification) {
+                                test[0] = integerNotification;
+                            }
+                        });
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42))
+                .to(foo);
+
+        assertThat(test[0]).isNull();
+
+        Integer result = foo.toBlocking().first();
+
+        assertThat(test[0].getKind()).isEqualTo(Notification.Kind.OnNext);
+        assertThat(test[0].getValue()).isEqualTo(42);
+    }
+
+    @Test
+    public void resetMocksCompletesAndReleasesTheSubscribersStillSubscribed() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        foo.subscribe(subscriber);
+        rxMock.sendEventsFrom(SingleEvent.onNext(42)).to(foo);
+
+        rxMock.resetMocks();
+
+        subscriber.assertReceivedOnNext(Collections.singletonList(42));
+        subscriber.assertTerminalEvent();
+        assertThat(subscriber.isUnsubscribed()).isTrue();
+    }
+
+    @Test
+    public void resetMocksStopsTheInjectedSources() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(1);
+        PublishSubject<Integer> source = PublishSubject.create();
+        PublishSubject<Integer> onDemandSource = PublishSubject.create();
+        rxMock.sendEventsFrom(source).to(foo);
+        rxMock.sendEventsFrom(onDemandSource).onDemand().to(bar);
+
+        rxMock.resetMocks();
+
+        assertThat(source.hasObservers()).isFalse();
+        assertThat(onDemandSource.hasObservers()).isFalse();
+    }
+
+    @Test
+    public void itReleasesTheInjectedSourcesOnceTheyTerminate() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+        final List<String> released = new ArrayList<>();
+
+        rxMock.sendEventsFrom(Observable.just(1).doOnUnsubscribe(recordingInto(released, "source"))).to(foo);
+        rxMock.sendEventsFrom(Observable.just(2).doOnUnsubscribe(recordingInto(released, "on demand source"))).onDemand().to(foo);
+
+        assertThat(released).containsExactly("source", "on demand source");
+    }
+
+    @Test
+    public void resetMocksTearsEveryPipelineDownWhenASubscriberThrows() throws Exception {
+        final IllegalStateException failure = new IllegalStateException("app crashed");
+        mockedRepo.foo(3).unsafeSubscribe(
+                new TestSubscriber<Integer>() {
+                    @Override
+                    public void onCompleted() {
+                        throw failure;
+                    }
+                }
+        );
+        Observable<Integer> bar = mockedRepo.foo(1);
+        PublishSubject<Integer> source = PublishSubject.create();
+        rxMock.sendEventsFrom(source).to(bar);
+
+        try {
+            rxMock.resetMocks();
+            fail("The failure of the subscriber should be rethrown");
+        } catch (IllegalStateException e) {
+            assertThat(e).isSameAs(failure);
+        }
+
+        assertThat(source.hasObservers()).isFalse();
+        assertThat(rxMock.getMetrics()).isEmpty();
+    }
+
+    @Test
+    public void resetMocksRethrowsEveryFailureOfTheSubscribers() throws Exception {
+        mockedRepo.foo(3).unsafeSubscribe(throwingOnCompleted(new IllegalStateException("first")));
+        mockedRepo.foo(1).unsafeSubscribe(throwingOnCompleted(new IllegalStateException("second")));
+
+        try {
+            rxMock.resetMocks();
+            fail("The failures of the subscribers should be rethrown");
+        } catch (CompositeException e) {
+            assertThat(e.getExceptions()).hasSize(2);
+        }
+    }
+
+    @Test
+    public void itReportsTheObservablesStillSubscribedWhenResettingMocks() throws Exception {
+        final List<Map<String, Integer>> reports = new ArrayList<>();
+        rxMock.reportLeaksTo(
+                new LeakReporter() {
+                    @Override
+                    public void report(Map<String, Integer> subscribersByInvocation) {
+                        reports.add(subscribersByInvocation);
+                    }
+                }
+        );
+        mockedRepo.foo(3).subscribe();
+        mockedRepo.foo(3).subscribe();
+        mockedRepo.foo(1).subscribe().unsubscribe();
+
+        rxMock.resetMocks();
+        rxMock.resetMocks();
+
+        assertThat(reports).hasSize(1);
+        assertThat(reports.get(0)).hasSize(1);
+        assertThat(reports.get(0).get("foo(3)")).isEqualTo(2);
+    }
+
+    @Test
+    public void itLetsTheObservablesNoLongerReferencedBeGarbageCollected() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            mockedRepo.foo(i);
+        }
+
+        awaitCollectionOf(new WeakReference<Object>(mockedRepo.foo(-1)));
+        for (int i = 0; i < 1000; i++) {
+            mockedRepo.foo(i);
+        }
+
+        assertThat(rxMock.getCacheStats().misses()).isGreaterThan(1001);
+    }
+
+    @Test
+    public void itDoesNotKeepTheArgumentsOfTheLastCallAlive() throws Exception {
+        TestRepository proxyRepo = RxMock.mock(TestRepository.class, MockEngine.PROXY).getMock();
+        Observable<Integer> baz = proxyRepo.baz("qux");
+        String argument = new String("qux");
+        WeakReference<Object> reference = new WeakReference<Object>(argument);
+
+        assertThat(proxyRepo.baz(argument)).isSameAs(baz);
+        argument = null;
+
+        awaitCollectionOf(reference);
+    }
+
+    @Test
+    public void itKeepsTheMetricsOfTheObservablesGarbageCollected() throws Exception {
+        for (int i = 0; i < 1000; i++) {
+            mockedRepo.foo(i);
+        }
+        awaitCollectionOf(new WeakReference<Object>(mockedRepo.foo(-1)));
+        mockedRepo.foo(0);
+
+        long invocations = 0;
+        for (MockMetrics metrics : rxMock.getMetrics()) {
+            invocations += metrics.invocations();
+        }
+        assertThat(invocations).isEqualTo(1002);
+        assertThat(invocationsOf("foo(0)")).isEqualTo(2);
+    }
+
+    @Test
+    public void itKeepsTheObservablesSubscribedOrWithInjectedEvents() throws Exception {
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        mockedRepo.foo(1).subscribe(subscriber);
+        rxMock.sendEventsFrom(SingleEvent.onNext(42)).to(mockedRepo.foo(3));
+
+        awaitCollectionOf(new WeakReference<Object>(mockedRepo.foo(-1)));
+        rxMock.sendEventsFrom(SingleEvent.onNext(24)).to(mockedRepo.foo(1));
+
+        TestSubscriber<Integer> lateSubscriber = new TestSubscriber<>();
+        mockedRepo.foo(3).subscribe(lateSubscriber);
+
+        lateSubscriber.assertReceivedOnNext(Collections.singletonList(42));
+        subscriber.assertReceivedOnNext(Collections.singletonList(24));
+    }
+
+    @Test
+    public void itEvictsTheLeastRecentlyUsedPipelinesBeyondTheLimit() throws Exception {
+        rxMock.limitPipelinesTo(2);
+        Observable<Integer> foo1 = mockedRepo.foo(1);
+        Observable<Integer> foo2 = mockedRepo.foo(2);
+        mockedRepo.foo(1);
+
+        Observable<Integer> foo3 = mockedRepo.foo(3);
+
+        PipelineCacheStats stats = rxMock.getCacheStats();
+        assertThat(rxMock.provides(foo1)).isTrue();
+        assertThat(rxMock.provides(foo2)).isFalse();
+        assertThat(rxMock.provides(foo3)).isTrue();
+        assertThat(stats.hits()).isEqualTo(1);
+        assertThat(stats.misses()).isEqualTo(3);
+        assertThat(stats.evictions()).isEqualTo(1);
+    }
+
+    @Test
+    public void itKeepsTheMetricsOfTheEvictedPipelines() throws Exception {
+        rxMock.limitPipelinesTo(1);
+        Observable<Integer> foo1 = mockedRepo.foo(1);
+        mockedRepo.foo(2);
+
+        foo1.subscribe();
+        mockedRepo.foo(1);
+
+        assertThat(rxMock.provides(foo1)).isFalse();
+        assertThat(rxMock.getMetrics()).hasSize(2);
+        assertThat(invocationsOf("foo(1)")).isEqualTo(2);
+        assertThat(rxMock.getMetricsFor(mockedRepo.foo(1)).subscriptions()).isEqualTo(1);
+    }
+
+    @Test
+    public void itNeverEvictsThePipelinesWithSubscribersOrListeners() throws Exception {
+        rxMock.limitPipelinesTo(1);
+        Observable<Integer> foo1 = mockedRepo.foo(1);
+        foo1.subscribe();
+        Observable<Integer> foo2 = mockedRepo.foo(2);
+        rxMock.getEventsFor(foo2).subscribe();
+
+        Observable<Integer> foo3 = mockedRepo.foo(3);
+        Observable<Integer> foo4 = mockedRepo.foo(4);
+
+        assertThat(rxMock.provides(foo1)).isTrue();
+        assertThat(rxMock.provides(foo2)).isTrue();
+        assertThat(rxMock.provides(foo3)).isFalse();
+        assertThat(rxMock.provides(foo4)).isTrue();
+    }
+
+    @Test
+    public void getEventsForReceivesEveryDeliveredEventOnce() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        final List<Notification<Integer>> events = new ArrayList<>();
+        rxMock.getEventsFor(foo)
+                .subscribe(
+                        new Action1<Notification<Integer>>() {
+                            @Override
+                            public void call(Notification<Integer> integerNotification) {
+                                events.add(integerNotification);
+                            }
+                        });
+        foo.subscribe();
+
+        rxMock.sendEventsFrom(Observable.just(1, 2, 3))
+                .to(foo);
+
+        assertThat(events).containsExactly(
+                Notification.createOnNext(1),
+                Notification.createOnNext(2),
+                Notification.createOnNext(3),
+                Notification.<Integer>createOnCompleted()
+        );
+    }
+
+    @Test
+    public void tapEventsForDispatchesEachEventOnceWhateverTheNumberOfSubscribers() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        List<Notification<Integer>> events = new ArrayList<>();
+        rxMock.tapEventsFor(foo, EnumSet.allOf(Notification.Kind.class), collectingInto(events));
+        foo.subscribe();
+        foo.subscribe();
+
+        rxMock.sendEventsFrom(SingleEvent.onNext(42)).to(foo);
+        foo.subscribe();
+
+        assertThat(events).containsExactly(Notification.createOnNext(42));
+    }
+
+    @Test
+    public void itCountsInvocationsSubscriptionsAndDeliveredEvents() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxMock.sendEventsFrom(Observable.just(1, 2)).to(foo);
+
+        MockMetrics metrics = rxMock.getMetricsFor(foo);
+        assertThat(metrics.invocation()).isEqualTo("foo(3)");
+        assertThat(metrics.invocations()).isEqualTo(2);
+        assertThat(metrics.subscriptions()).isEqualTo(1);
+        assertThat(metrics.onNextDelivered()).isEqualTo(2);
+        assertThat(metrics.onCompletedDelivered()).isEqualTo(1);
+    }
+
+    @Test
+    public void itCountsAndJournalsEachEventOncePerPipeline() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+        foo.subscribe();
+
+        rxMock.sendEventsFrom(Observable.just(1)).to(foo);
+
+        MockMetrics metrics = rxMock.getMetricsFor(foo);
+        assertThat(metrics.subscriptions()).isEqualTo(2);
+        assertThat(metrics.onNextDelivered()).isEqualTo(1);
+        assertThat(metrics.onCompletedDelivered()).isEqualTo(1);
+        assertThat(rxMock.getJournal().dump().split("\n")).hasSize(2);
+    }
+
+    @Test
+    public void itReportsMetricsAsJsonWhenResettingMocks() throws Exception {
+        final List<String> reports = new ArrayList<>();
+        rxMock.reportMetricsTo(
+                new MetricsReporter() {
+                    @Override
+                    public void report(String json) {
+                        reports.add(json);
+                    }
+                }
+        );
+        mockedRepo.baz("\"quoted\"");
+
+        rxMock.resetMocks();
+
+        assertThat(reports).containsExactly(
+                "[{\"invocation\":\"baz(\\\"quoted\\\")\",\"invocations\":1,\"subscriptions\":0,\"onNext\":0,\"onError\":0,"
+                        + "\"onCompleted\":0,\"matches\":0,\"totalMatchLatencyNanos\":0,\"maxMatchLatencyNanos\":0}]"
+        );
+        assertThat(rxMock.getMetrics()).isEmpty();
+    }
+
+    @Test
+    public void itOnlyJournalsTheMostRecentEvents() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxMock.sendEventsFrom(Observable.range(0, 300)).to(foo);
+
+        String[] entries = rxMock.getJournal().dump().split("\n");
+        assertThat(entries).hasSize(256);
+        assertThat(entries[0]).startsWith("#45 ");
+        assertThat(entries[255]).startsWith("#300 ").endsWith("foo(3) OnCompleted");
+    }
+
+    @Test
+    public void tapEventsForOnlyDispatchesTheKindsOfEachListener() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+        final List<Notification<Integer>> values = new ArrayList<>();
+        final List<Notification<Integer>> completions = new ArrayList<>();
+        final List<Notification<Integer>> removed = new ArrayList<>();
+        rxMock.tapEventsFor(foo, EnumSet.of(Notification.Kind.OnNext), collectingInto(values));
+        rxMock.tapEventsFor(foo, EnumSet.of(Notification.Kind.OnCompleted), collectingInto(completions));
+        Subscription removedTap = rxMock.tapEventsFor(foo, EnumSet.allOf(Notification.Kind.class), collectingInto(removed));
+
+        removedTap.unsubscribe();
+        rxMock.sendEventsFrom(Observable.just(1, 2)).to(foo);
+
+        assertThat(values).hasSize(2);
+        assertThat(completions).hasSize(1);
+        assertThat(removed).isEmpty();
+    }
+
+    @Test
+    public void itOnlySendsAsManyEventsAsRequestedWhenSendingOnDemand() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        RequestingSubscriber subscriber = new RequestingSubscriber(10);
+        foo.subscribe(subscriber);
+
+        rxMock.sendEventsFrom(Observable.range(1, 100000))
+                .onDemand()
+                .to(foo);
+
+        assertThat(subscriber.values).hasSize(10);
+
+        subscriber.requestMore(5);
+
+        assertThat(subscriber.values).hasSize(15);
+        assertThat(subscriber.values.get(14)).isEqualTo(15);
+    }
+
+    @Test
+    public void itDoesNotRequestTwiceTheInitialRequestOfASubscriberSubscribedUnsafely() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        RequestingSubscriber subscriber = new RequestingSubscriber(5);
+        foo.unsafeSubscribe(subscriber);
+
+        rxMock.sendEventsFrom(Observable.range(1, 100000))
+                .onDemand()
+                .to(foo);
+
+        assertThat(subscriber.values).hasSize(5);
+    }
+
+    @Test
+    public void itSendsOnDemandWithinTheCapacityOfAnObserveOnConsumer() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        TestSubscriber<Integer> subscriber = new TestSubscriber<>();
+        foo.observeOn(Schedulers.computation()).subscribe(subscriber);
+
+        rxMock.sendEventsFrom(Observable.range(1, 100000))
+                .onDemand()
+                .to(foo);
+
+        subscriber.awaitTerminalEvent(10, TimeUnit.SECONDS);
+        subscriber.assertNoErrors();
+        assertThat(subscriber.getOnNextEvents()).hasSize(100000);
+    }
+
+    @Test
+    public void itOnlySendsOnDemandWhatEverySubscriberRequested() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        RequestingSubscriber first = new RequestingSubscriber(1);
+        RequestingSubscriber second = new RequestingSubscriber(1);
+        foo.unsafeSubscribe(first);
+        foo.unsafeSubscribe(second);
+
+        rxMock.sendEventsFrom(Observable.range(1, 100000))
+                .onDemand()
+                .to(foo);
+
+        assertThat(first.values).containsExactly(1);
+        assertThat(second.values).containsExactly(1);
+
+        first.requestMore(1);
+
+        assertThat(first.values).containsExactly(1);
+
+        second.requestMore(1);
+
+        assertThat(first.values).containsExactly(1, 2);
+        assertThat(second.values).containsExactly(1, 2);
+    }
+
+    public interface TestRepository {
+        Observable<Integer> foo(int bar);
+
+        Observable<Integer> baz(String qux);
+    }
+
+    private long invocationsOf(String invocation) {
+        for (MockMetrics metrics : rxMock.getMetrics()) {
+            if (metrics.invocation().equals(invocation)) {
+                return metrics.invocations();
+            }
+        }
+        return 0;
+    }
+
+    private static Action0 recordingInto(final List<String> records, final String record) {
+        return new Action0() {
+            @Override
+            public void call() {
+                records.add(record);
+            }
+        };
+    }
+
+    private static void awaitCollectionOf(WeakReference<Object> reference) throws InterruptedException {
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(reference.get()).isNull();
+    }
+
+    private static Action1<Notification<Integer>> collectingInto(final List<Notification<Integer>> notifications) {
+        return new Action1<Notification<Integer>>() {
+            @Override
+            public void call(Notification<Integer> notification) {
+                notifications.add(notification);
+            }
+        };
+    }
+
+    private static Subscriber<Integer> throwingOnCompleted(final RuntimeException failure) {
+        return new TestSubscriber<Integer>() {
+            @Override
+            public void onCompleted() {
+                throw failure;
+            }
+        };
+    }
+
+    private static class RequestingSubscriber extends Subscriber<Integer> {
+
+        private final List<Integer> values = new ArrayList<>();
+        private final long initialRequest;
+
+        RequestingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        @Override
+        public void onStart() {
+            request(initialRequest);
+        }
+
+        void requestMore(long n) {
+            request(n);
+        }
+
+        @Override
+        public void onCompleted() {
+        }
+
+        @Override
+        public void onError(Throwable e) {
+        }
+
+        @Override
+        public void onNext(Integer integer) {
+            values.add(integer);
+        }
+    }
+}
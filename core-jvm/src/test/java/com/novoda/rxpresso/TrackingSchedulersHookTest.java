@@ -0,0 +1,110 @@
+package com.novoda.rxpresso;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.schedulers.TrackingSchedulersHook;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class TrackingSchedulersHookTest {
+
+    private TrackingSchedulersHook hook;
+    private CountDownLatch idle;
+
+    @Before
+    public void setUp() throws Exception {
+        hook = new TrackingSchedulersHook();
+        idle = new CountDownLatch(1);
+        hook.setOnIdle(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        idle.countDown();
+                    }
+                }
+        );
+    }
+
+    @Test
+    public void itCountsWorkInFlightUntilItRan() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Scheduler.Worker worker = hook.getIOScheduler().createWorker();
+
+        worker.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        await(release);
+                    }
+                }
+        );
+
+        assertThat(hook.inFlightCount()).isEqualTo(1);
+
+        release.countDown();
+
+        assertThat(idle.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(hook.inFlightCount()).isEqualTo(0);
+        worker.unsubscribe();
+    }
+
+    @Test
+    public void itStopsCountingUnsubscribedWork() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        Scheduler.Worker worker = hook.getComputationScheduler().createWorker();
+        worker.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        await(release);
+                    }
+                }
+        );
+        Subscription pending = worker.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                    }
+                }
+        );
+
+        pending.unsubscribe();
+        release.countDown();
+
+        assertThat(idle.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(hook.inFlightCount()).isEqualTo(0);
+        worker.unsubscribe();
+    }
+
+    @Test
+    public void itDoesNotCountDelayedWorkBeforeItIsDue() throws Exception {
+        Scheduler.Worker worker = hook.getComputationScheduler().createWorker();
+
+        worker.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                    }
+                }, 1, TimeUnit.HOURS
+        );
+
+        assertThat(hook.inFlightCount()).isEqualTo(0);
+        worker.unsubscribe();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,286 @@
+package com.novoda.rxpresso;
+
+import android.support.test.espresso.IdlingResource;
+
+import com.novoda.rxpresso.matcher.RxExpect;
+import com.novoda.rxpresso.matcher.RxMatcher;
+import com.novoda.rxpresso.mock.RxMock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import rx.Notification;
+import rx.Observable;
+import rx.Scheduler;
+import rx.Subscription;
+import rx.functions.Action0;
+import rx.functions.Action1;
+import rx.schedulers.Schedulers;
+
+/**
+ * Declares several {@code given/withEventsFrom/expect} steps injected together.
+ * The whole batch is a single idling resource, busy until every step received the event it expects.
+ */
+public class Batch implements IdlingResource {
+
+    private final RxPresso rxPresso;
+    private final PendingExpectations pendingExpectations;
+    private final List<Step<?>> steps = new ArrayList<>();
+    private final AtomicBoolean idle = new AtomicBoolean(true);
+    private final AtomicInteger unmatchedSteps = new AtomicInteger();
+
+    private ResourceCallback resourceCallback;
+    private Scheduler.Worker deadline;
+    private Subscription errorScope;
+
+    Batch(RxPresso rxPresso, PendingExpectations pendingExpectations) {
+        this.rxPresso = rxPresso;
+        this.pendingExpectations = pendingExpectations;
+    }
+
+    /**
+     * @param observable The mocked observable to inject events into
+     * @return A BatchWith object to define the events to inject into {@code observable}
+     */
+    public <T> BatchWith<T> given(Observable<T> observable) {
+        return new BatchWith<>(rxPresso.mockProviding(observable), observable);
+    }
+
+    /**
+     * Subscribes the expectations of every step then injects the events of every source into its mocked observable.
+     *
+     * @return A Then object to chain any Espresso actions to execute once every step received the event it expects
+     */
+    public Then inject() {
+        if (steps.isEmpty()) {
+            return new Then();
+        }
+        errorScope = pendingExpectations.openErrorScope();
+        unmatchedSteps.set(steps.size());
+        transitionToBusy();
+        injectSteps();
+        return new Then();
+    }
+
+    /**
+     * Subscribes the expectations of every step then injects the events of every source into its mocked observable,
+     * and waits at most {@code timeout} for every step to receive the event it expects.
+     * If a step did not match in time the batch stops waiting and the next idleness check of RxPresso
+     * throws an exception listing the steps still waiting.
+     *
+     * @param timeout The maximum time to wait for every step to match
+     * @param unit    The unit of {@code timeout}
+     * @return A Then object to chain any Espresso actions to execute once every step received the event it expects
+     */
+    public Then inject(long timeout, TimeUnit unit) {
+        if (steps.isEmpty()) {
+            return new Then();
+        }
+        errorScope = pendingExpectations.openErrorScope();
+        unmatchedSteps.set(steps.size());
+        transitionToBusy();
+        startDeadline(timeout, unit);
+        injectSteps();
+        return new Then();
+    }
+
+    private void injectSteps() {
+        for (Step<?> step : steps) {
+            step.subscribe();
+        }
+        for (Step<?> step : steps) {
+            step.send();
+        }
+    }
+
+    private void startDeadline(final long timeout, final TimeUnit unit) {
+        deadline = Schedulers.computation().createWorker();
+        deadline.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        List<String> unmatched = new ArrayList<>();
+                        List<RxMock> mocks = new ArrayList<>();
+                        for (Step<?> step : steps) {
+                            if (!step.isMatched) {
+                                unmatched.add(step.matcher.description());
+                                if (!mocks.contains(step.mock)) {
+                                    mocks.add(step.mock);
+                                }
+                            }
+                        }
+                        if (unmatched.isEmpty()) {
+                            return;
+                        }
+                        StringBuilder message = new StringBuilder("Expected ")
+                                .append(unmatched).append(" within ").append(timeout).append(' ').append(unit)
+                                .append(" but no matching event was received");
+                        for (RxMock mock : mocks) {
+                            message.append(mock.getJournal().describeForFailure());
+                        }
+                        finish(new RuntimeException(message.toString()));
+                    }
+                }, timeout, unit
+        );
+    }
+
+    private void onStepMatched() {
+        if (unmatchedSteps.decrementAndGet() == 0) {
+            finish(null);
+        }
+    }
+
+    private void transitionToBusy() {
+        if (idle.compareAndSet(true, false)) {
+            pendingExpectations.increment();
+        }
+    }
+
+    /**
+     * Stops waiting once every step matched, as soon as one of them failed, or when the deadline expired with {@code failure}.
+     */
+    private void finish(RuntimeException failure) {
+        if (idle.compareAndSet(false, true)) {
+            for (Step<?> step : steps) {
+                step.unsubscribe();
+            }
+            if (deadline != null) {
+                deadline.unsubscribe();
+            }
+            pendingExpectations.closeErrorScope(errorScope);
+            if (failure != null) {
+                pendingExpectations.fail(failure);
+            }
+            pendingExpectations.decrement();
+            resourceCallback.onTransitionToIdle();
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "Batch";
+    }
+
+    @Override
+    public boolean isIdleNow() {
+        return idle.get();
+    }
+
+    @Override
+    public void registerIdleTransitionCallback(ResourceCallback resourceCallback) {
+        this.resourceCallback = resourceCallback;
+    }
+
+    public class BatchWith<T> {
+
+        private final RxMock mock;
+        private final Observable<T> observable;
+
+        BatchWith(RxMock mock, Observable<T> observable) {
+            this.mock = mock;
+            this.observable = observable;
+        }
+
+        /**
+         * @param source An observable providing the events to inject
+         * @return A BatchExpect object to setup what event to expect for this step
+         */
+        public BatchExpect<T> withEventsFrom(Observable<T> source) {
+            return new BatchExpect<>(mock, observable, source);
+        }
+
+    }
+
+    public class BatchExpect<T> {
+
+        private final RxMock mock;
+        private final Observable<T> observable;
+        private final Observable<T> source;
+
+        BatchExpect(RxMock mock, Observable<T> observable, Observable<T> source) {
+            this.mock = mock;
+            this.observable = observable;
+            this.source = source;
+        }
+
+        /**
+         * @param matcher A matcher defining what event this step is expecting to receive.
+         * @return The batch to declare more steps on or to inject
+         */
+        public Batch expect(RxMatcher<Notification<T>> matcher) {
+            steps.add(new Step<>(mock, observable, source, matcher, false));
+            return Batch.this;
+        }
+
+        /**
+         * @param matcher A matcher every event received by this step must match.
+         * @return The batch to declare more steps on or to inject
+         */
+        public Batch expectOnly(RxMatcher<Notification<T>> matcher) {
+            steps.add(new Step<>(mock, observable, source, matcher, true));
+            return Batch.this;
+        }
+
+    }
+
+    private class Step<T> {
+
+        private final RxMock mock;
+        private final Observable<T> observable;
+        private final Observable<T> source;
+        private final RxMatcher<Notification<T>> matcher;
+        private final boolean only;
+
+        private Subscription subscription;
+        private long sentAtNanos;
+        private volatile boolean isMatched;
+
+        Step(RxMock mock, Observable<T> observable, Observable<T> source, RxMatcher<Notification<T>> matcher, boolean only) {
+            this.mock = mock;
+            this.observable = observable;
+            this.source = source;
+            this.matcher = matcher;
+            this.only = only;
+        }
+
+        void subscribe() {
+            Action1<Notification<T>> matched = new Action1<Notification<T>>() {
+                @Override
+                public void call(Notification<T> notification) {
+                    subscription.unsubscribe();
+                    isMatched = true;
+                    mock.recordMatch(observable, sentAtNanos);
+                    onStepMatched();
+                }
+            };
+            subscription = mock.tapEventsFor(
+                    observable,
+                    only ? Expect.ALL_KINDS : Expect.kindsWatchedBy(matcher),
+                    Expect.failingWithJournal(
+                            mock, only ? RxExpect.expectOnly(matcher, matched) : RxExpect.expect(matcher, matched), new Action0() {
+                                @Override
+                                public void call() {
+                                    finish(null);
+                                }
+                            }
+                    )
+            );
+        }
+
+        void unsubscribe() {
+            if (subscription != null) {
+                subscription.unsubscribe();
+            }
+        }
+
+        void send() {
+            sentAtNanos = System.nanoTime();
+            mock.sendEventsFrom(source).to(observable);
+        }
+
+    }
+
+}
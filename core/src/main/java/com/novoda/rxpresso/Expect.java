@@ -2,32 +2,93 @@ package com.novoda.rxpresso;
 
 import android.support.test.espresso.IdlingResource;
 
+import com.novoda.rxpresso.matcher.KindMatcher;
 import com.novoda.rxpresso.matcher.RxExpect;
 import com.novoda.rxpresso.matcher.RxMatcher;
 import com.novoda.rxpresso.mock.RxMock;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 import rx.Notification;
 import rx.Observable;
+import rx.Scheduler;
 import rx.Subscription;
+import rx.functions.Action0;
 import rx.functions.Action1;
-import rx.plugins.RxErrorRethrower;
+import rx.schedulers.Schedulers;
+import rx.schedulers.TestScheduler;
 
 public class Expect<T> implements IdlingResource {
 
+    static final Set<Notification.Kind> ALL_KINDS = Collections.unmodifiableSet(EnumSet.allOf(Notification.Kind.class));
+
     private final Observable<T> observable;
     private final RxMock mock;
     private final Observable<T> source;
+    private final boolean onDemand;
+    private final TestScheduler scheduler;
     private final AtomicBoolean idle = new AtomicBoolean(true);
+    private final PendingExpectations pendingExpectations;
 
     private Subscription subscription;
     private ResourceCallback resourceCallback;
+    private long timeToAdvanceInNanos;
+    private List<Notification<T>> received;
+    private Scheduler.Worker deadline;
+    private Subscription errorScope;
+    private long sentAtNanos;
 
-    Expect(RxMock mock, Observable<T> source, Observable<T> observable) {
+    Expect(
+            RxMock mock,
+            Observable<T> source,
+            Observable<T> observable,
+            boolean onDemand,
+            TestScheduler scheduler,
+            PendingExpectations pendingExpectations) {
         this.mock = mock;
         this.source = source;
         this.observable = observable;
+        this.onDemand = onDemand;
+        this.scheduler = scheduler;
+        this.pendingExpectations = pendingExpectations;
+    }
+
+    /**
+     * Moves the virtual time of the scheduler given to {@link With#withEventsFrom(Observable, TestScheduler)} forward
+     * by {@code delayTime} once the events are injected, running the actions scheduled in that period instantly.
+     *
+     * @param delayTime The amount of virtual time to move forward
+     * @param unit      The unit of {@code delayTime}
+     * @return This Expect object to setup what event to expect and wait for.
+     */
+    public Expect<T> advancingTimeBy(long delayTime, TimeUnit unit) {
+        requireScheduler();
+        timeToAdvanceInNanos = unit.toNanos(delayTime);
+        return this;
+    }
+
+    /**
+     * Moves the virtual time of the scheduler given to {@link With#withEventsFrom(Observable, TestScheduler)} forward
+     * by {@code delayTime} now, running the actions scheduled in that period instantly.
+     *
+     * @param delayTime The amount of virtual time to move forward
+     * @param unit      The unit of {@code delayTime}
+     */
+    public void advanceTimeBy(long delayTime, TimeUnit unit) {
+        requireScheduler().advanceTimeBy(delayTime, unit);
+    }
+
+    private TestScheduler requireScheduler() {
+        if (scheduler == null) {
+            throw new IllegalStateException("No virtual time scheduler, use withEventsFrom(Observable source, TestScheduler scheduler)");
+        }
+        return scheduler;
     }
 
     /**
@@ -39,8 +100,27 @@ public class Expect<T> implements IdlingResource {
      * @return A Then object to chain any Espresso actions to execute once {@code observable} received an event matching {@code matcher}
      */
     public Then expect(RxMatcher<Notification<T>> matcher) {
-        expectAnyMatching(matcher);
-        mock.sendEventsFrom(source).to(observable);
+        subscribe(kindsWatchedBy(matcher), RxExpect.expect(matcher, onMatched));
+        injectEvents();
+        return new Then();
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and wait at most {@code timeout} for an event matching {@code matcher}
+     * If no event matching {@code matcher} is received in time the expectation stops waiting and the next idleness check of RxPresso
+     * throws an exception listing the events received so far.
+     * The deadline runs on virtual time if the events come from {@link With#withEventsFrom(Observable, TestScheduler)}.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @param timeout The maximum time to wait for an event matching {@code matcher}
+     * @param unit    The unit of {@code timeout}
+     * @return A Then object to chain any Espresso actions to execute once {@code observable} received an event matching {@code matcher}
+     */
+    public Then expect(RxMatcher<Notification<T>> matcher, long timeout, TimeUnit unit) {
+        recordReceivedEvents();
+        subscribe(ALL_KINDS, RxExpect.expect(matcher, onMatched));
+        startDeadline(matcher, timeout, unit);
+        injectEvents();
         return new Then();
     }
 
@@ -52,49 +132,190 @@ public class Expect<T> implements IdlingResource {
      * @return A Then object to chain any Espresso actions to execute once {@code observable} received an event matching {@code matcher}
      */
     public Then expectOnly(RxMatcher<Notification<T>> matcher) {
-        expectOnlyMatching(matcher);
-        mock.sendEventsFrom(source).to(observable);
+        subscribe(ALL_KINDS, RxExpect.expectOnly(matcher, onMatched));
+        injectEvents();
+        return new Then();
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and wait at most {@code timeout} for an event matching {@code matcher}
+     * If an event not matching {@code matcher} is received an exception is thrown.
+     * If no event is received in time the expectation stops waiting and the next idleness check of RxPresso throws an exception.
+     *
+     * @param matcher A matcher defining what event we are expecting to receive.
+     * @param timeout The maximum time to wait for an event matching {@code matcher}
+     * @param unit    The unit of {@code timeout}
+     * @return A Then object to chain any Espresso actions to execute once {@code observable} received an event matching {@code matcher}
+     */
+    public Then expectOnly(RxMatcher<Notification<T>> matcher, long timeout, TimeUnit unit) {
+        recordReceivedEvents();
+        subscribe(ALL_KINDS, RxExpect.expectOnly(matcher, onMatched));
+        startDeadline(matcher, timeout, unit);
+        injectEvents();
         return new Then();
     }
 
-    private void expectAnyMatching(RxMatcher<Notification<T>> matcher) {
-        RxErrorRethrower.register();
-        idle.compareAndSet(true, false);
-
-        subscription = mock.getEventsFor(observable).subscribe(
-                RxExpect.expect(
-                        matcher, new Action1<Notification<T>>() {
-                            @Override
-                            public void call(Notification<T> tNotification) {
-                                subscription.unsubscribe();
-                                RxErrorRethrower.unregister();
-                                transitionToIdle();
-                            }
-                        }
-                )
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and wait for events matching {@code matchers} in this order.
+     * A single subscription checks the whole sequence, other events may be received in between.
+     * If {@code observable} completes before the whole sequence is matched an exception is thrown.
+     *
+     * @param matchers The matchers defining the events we are expecting to receive, in order.
+     * @return A Then object to chain any Espresso actions to execute once {@code observable} received the whole sequence
+     */
+    @SafeVarargs
+    public final Then expectSequence(RxMatcher<Notification<T>>... matchers) {
+        List<RxMatcher<Notification<T>>> sequence = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            sequence.add(matcher);
+        }
+        subscribe(ALL_KINDS, RxExpect.expectSequence(sequence, onMatched));
+        injectEvents();
+        return new Then();
+    }
+
+    /**
+     * Injects the events from {@code source} into the mocked {@code observable} and wait for an event matching each of {@code matchers}, in any order.
+     * If {@code observable} completes before every matcher is matched an exception is thrown.
+     *
+     * @param matchers The matchers defining the events we are expecting to receive.
+     * @return A Then object to chain any Espresso actions to execute once {@code observable} received an event matching each of {@code matchers}
+     */
+    @SafeVarargs
+    public final Then expectInAnyOrder(RxMatcher<Notification<T>>... matchers) {
+        List<RxMatcher<Notification<T>>> expected = new ArrayList<>(matchers.length);
+        for (RxMatcher<Notification<T>> matcher : matchers) {
+            expected.add(matcher);
+        }
+        subscribe(ALL_KINDS, RxExpect.expectInAnyOrder(expected, onMatched));
+        injectEvents();
+        return new Then();
+    }
+
+    private void injectEvents() {
+        RxMock.RxObservableSender<T> sender = mock.sendEventsFrom(source);
+        if (onDemand) {
+            sender.onDemand();
+        }
+        sentAtNanos = System.nanoTime();
+        sender.to(observable);
+        if (scheduler != null) {
+            scheduler.advanceTimeBy(timeToAdvanceInNanos, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private void recordReceivedEvents() {
+        received = Collections.synchronizedList(new ArrayList<Notification<T>>());
+    }
+
+    private void subscribe(Set<Notification.Kind> kinds, final Action1<Notification<T>> expectation) {
+        errorScope = pendingExpectations.openErrorScope();
+        transitionToBusy();
+
+        Action1<Notification<T>> listener = failingWithJournal(
+                mock, expectation, new Action0() {
+                    @Override
+                    public void call() {
+                        finish(null);
+                    }
+                }
         );
+        if (received != null) {
+            kinds = ALL_KINDS;
+            listener = recordingReceivedEvents(listener);
+        }
+        subscription = mock.tapEventsFor(observable, kinds, listener);
     }
 
-    private void expectOnlyMatching(RxMatcher<Notification<T>> matcher) {
-        RxErrorRethrower.register();
-        idle.compareAndSet(true, false);
-
-        subscription = mock.getEventsFor(observable).subscribe(
-                RxExpect.expectOnly(
-                        matcher, new Action1<Notification<T>>() {
-                            @Override
-                            public void call(Notification<T> tNotification) {
-                                subscription.unsubscribe();
-                                RxErrorRethrower.unregister();
-                                transitionToIdle();
-                            }
-                        }
-                )
+    private Action1<Notification<T>> recordingReceivedEvents(final Action1<Notification<T>> listener) {
+        return new Action1<Notification<T>>() {
+            @Override
+            public void call(Notification<T> notification) {
+                received.add(notification);
+                listener.call(notification);
+            }
+        };
+    }
+
+    private void startDeadline(final RxMatcher<Notification<T>> matcher, final long timeout, final TimeUnit unit) {
+        Scheduler timer = scheduler == null ? Schedulers.computation() : scheduler;
+        deadline = timer.createWorker();
+        deadline.schedule(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        finish(
+                                new RuntimeException(
+                                        "Expected " + matcher.description() + " within " + timeout + " " + unit + " but got " + received
+                                                + mock.getJournal().describeForFailure()
+                                )
+                        );
+                    }
+                }, timeout, unit
         );
     }
 
-    private void transitionToIdle() {
+    private final Action1<Notification<T>> onMatched = new Action1<Notification<T>>() {
+        @Override
+        public void call(Notification<T> notification) {
+            mock.recordMatch(observable, sentAtNanos);
+            finish(null);
+        }
+    };
+
+    /**
+     * Calls {@code onFailure} when {@code expectation} fails, to stop waiting and close the error rethrowing scope,
+     * then throws its exception again with the journal of {@code mock} appended to the message.
+     */
+    static <T> Action1<Notification<T>> failingWithJournal(
+            final RxMock mock,
+            final Action1<Notification<T>> expectation,
+            final Action0 onFailure) {
+        return new Action1<Notification<T>>() {
+            @Override
+            public void call(Notification<T> notification) {
+                try {
+                    expectation.call(notification);
+                } catch (RuntimeException e) {
+                    onFailure.call();
+                    throw new RuntimeException(e.getMessage() + mock.getJournal().describeForFailure(), e);
+                }
+            }
+        };
+    }
+
+    /**
+     * An expectation waiting for an event matching a {@link KindMatcher} only needs to receive the events of that kind,
+     * and the completion which makes it fail.
+     */
+    static Set<Notification.Kind> kindsWatchedBy(RxMatcher<?> matcher) {
+        if (matcher instanceof KindMatcher) {
+            return EnumSet.of(((KindMatcher<?>) matcher).kind(), Notification.Kind.OnCompleted);
+        }
+        return ALL_KINDS;
+    }
+
+    private void transitionToBusy() {
+        if (idle.compareAndSet(true, false)) {
+            pendingExpectations.increment();
+        }
+    }
+
+    /**
+     * Stops waiting, either because the expectation was matched or failed, or because the deadline expired with {@code failure}.
+     * Only the first of them goes through.
+     */
+    private void finish(RuntimeException failure) {
         if (idle.compareAndSet(false, true)) {
+            subscription.unsubscribe();
+            if (deadline != null) {
+                deadline.unsubscribe();
+            }
+            pendingExpectations.closeErrorScope(errorScope);
+            if (failure != null) {
+                pendingExpectations.fail(failure);
+            }
+            pendingExpectations.decrement();
             resourceCallback.onTransitionToIdle();
         }
     }
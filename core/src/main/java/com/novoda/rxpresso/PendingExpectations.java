@@ -0,0 +1,78 @@
+package com.novoda.rxpresso;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import rx.Subscription;
+import rx.plugins.RxErrorRethrower;
+import rx.subscriptions.CompositeSubscription;
+
+/**
+ * Number of expectations still waiting for their event, shared by a {@link RxPresso} and the expectations it creates.
+ * Also holds the failure of an expectation which could not be thrown on the thread delivering events, such as a missed deadline,
+ * and the error rethrowing scopes opened by the expectations, so the ones never matched can be closed on reset.
+ */
+final class PendingExpectations {
+
+    private final AtomicInteger count = new AtomicInteger();
+    private final AtomicReference<RuntimeException> failure = new AtomicReference<>();
+    private final CompositeSubscription errorScopes = new CompositeSubscription();
+
+    void increment() {
+        count.incrementAndGet();
+    }
+
+    void decrement() {
+        count.decrementAndGet();
+    }
+
+    /**
+     * @return A scope rethrowing errors until it is closed with {@link #closeErrorScope(Subscription)} or {@link #closeErrorScopes()}
+     */
+    Subscription openErrorScope() {
+        Subscription scope = RxErrorRethrower.openScope();
+        errorScopes.add(scope);
+        return scope;
+    }
+
+    void closeErrorScope(Subscription scope) {
+        errorScopes.remove(scope);
+    }
+
+    /**
+     * Closes the scopes of the expectations still waiting, so they don't rethrow unrelated errors once the test is over.
+     */
+    void closeErrorScopes() {
+        errorScopes.clear();
+    }
+
+    /**
+     * Records a failure to throw the next time the idleness is checked.
+     */
+    void fail(RuntimeException exception) {
+        failure.compareAndSet(null, exception);
+    }
+
+    /**
+     * @return true if no expectation is waiting for its event
+     */
+    boolean isEmpty() {
+        return count.get() == 0;
+    }
+
+    /**
+     * Called on every idleness poll, so it only writes when a failure was recorded.
+     *
+     * @throws RuntimeException The failure recorded by {@link #fail(RuntimeException)} if any, only once
+     */
+    void rethrowFailure() {
+        if (failure.get() == null) {
+            return;
+        }
+        RuntimeException exception = failure.getAndSet(null);
+        if (exception != null) {
+            throw exception;
+        }
+    }
+
+}
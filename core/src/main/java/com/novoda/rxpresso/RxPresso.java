@@ -2,24 +2,27 @@ package com.novoda.rxpresso;
 
 import android.support.test.espresso.IdlingResource;
 
+import com.novoda.rxpresso.mock.LeakReporter;
+import com.novoda.rxpresso.mock.MetricsReporter;
 import com.novoda.rxpresso.mock.RxMock;
 
-import java.util.ArrayList;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Set;
 
 import rx.Observable;
 import rx.functions.Func1;
 
 public final class RxPresso implements IdlingResource {
 
-    private final List<RxMock> mocks;
-    private final List<IdlingResource> pendingResources = Collections.synchronizedList(new ArrayList<IdlingResource>());
+    private final Set<RxMock> mocks = Collections.newSetFromMap(new IdentityHashMap<RxMock, Boolean>());
+    private final PendingExpectations pendingExpectations = new PendingExpectations();
 
     private ResourceCallback resourceCallback;
 
     /**
-     * @param mocks The different mocked repositories you want to control in your tests
+     * @param mocks The different mocked repositories you want to control in your tests, or the {@link RxMock}s controlling them
      */
     public static RxPresso from(Object... mocks) {
         return new RxPresso(Observable.from(mocks).map(asRxMocks).toList().toBlocking().first());
@@ -29,47 +32,58 @@ public final class RxPresso implements IdlingResource {
      * @param mocks The different mocked repositories you want to control in your tests
      */
     private RxPresso(List<RxMock> mocks) {
-        this.mocks = mocks;
+        this.mocks.addAll(mocks);
     }
 
     public <T> With<T> given(Observable<T> observable) {
-        RxMock mock = Observable.from(mocks).filter(provides(observable)).toBlocking().first();
-        final With<T> with = new With<>(mock, observable);
-        pendingResources.add(with);
-        with.registerIdleTransitionCallback(
-                new ResourceCallback() {
-                    @Override
-                    public void onTransitionToIdle() {
-                        pendingResources.remove(with);
-                        if (pendingResources.isEmpty()) {
-                            resourceCallback.onTransitionToIdle();
-                        }
-                    }
-                }
-        );
+        With<T> with = new With<>(mockProviding(observable), observable, pendingExpectations);
+        with.registerIdleTransitionCallback(onExpectationIdle);
         return with;
     }
 
-    private static <T> Func1<? super RxMock, Boolean> provides(final Observable<T> observable) {
-        return new Func1<RxMock, Boolean>() {
-            @Override
-            public Boolean call(RxMock rxMock) {
-                return rxMock.provides(observable);
-            }
-        };
+    /**
+     * Starts a batch declaring several {@code given/withEventsFrom/expect} steps, possibly across different mocks.
+     * All the steps share a single idle transition and their sources are injected in one pass by {@link Batch#inject()}.
+     *
+     * @return A Batch to declare the steps on
+     */
+    public Batch batch() {
+        Batch batch = new Batch(this, pendingExpectations);
+        batch.registerIdleTransitionCallback(onExpectationIdle);
+        return batch;
     }
 
+    RxMock mockProviding(Observable<?> observable) {
+        RxMock mock = RxMock.ownerOf(observable);
+        if (mock == null || !mocks.contains(mock)) {
+            throw new IllegalArgumentException("The observable " + observable + " is not provided by any of the mocked repositories");
+        }
+        return mock;
+    }
+
+    private final ResourceCallback onExpectationIdle = new ResourceCallback() {
+        @Override
+        public void onTransitionToIdle() {
+            if (pendingExpectations.isEmpty()) {
+                resourceCallback.onTransitionToIdle();
+            }
+        }
+    };
+
     @Override
     public String getName() {
         return "RxPresso";
     }
 
+    /**
+     * Espresso polls this constantly, it is a single read of the number of expectations still waiting for their event.
+     *
+     * @throws RuntimeException If an expectation missed its deadline, failing the Espresso action waiting on it
+     */
     @Override
     public boolean isIdleNow() {
-        if (pendingResources.isEmpty()) {
-            return true;
-        }
-        return Observable.from(pendingResources).all(isIdle).toBlocking().first();
+        pendingExpectations.rethrowFailure();
+        return pendingExpectations.isEmpty();
     }
 
     @Override
@@ -77,22 +91,43 @@ public final class RxPresso implements IdlingResource {
         this.resourceCallback = resourceCallback;
     }
 
-    public void resetMocks() {
+    /**
+     * @param metricsReporter Receives the metrics of each mocked repository as JSON each time the mocks are reset
+     */
+    public void reportMetricsTo(MetricsReporter metricsReporter) {
         for (RxMock mock : mocks) {
-            mock.resetMocks();
+            mock.reportMetricsTo(metricsReporter);
         }
     }
 
-    private static final Func1<IdlingResource, Boolean> isIdle = new Func1<IdlingResource, Boolean>() {
-        @Override
-        public Boolean call(IdlingResource resource) {
-            return resource.isIdleNow();
+    /**
+     * @param leakReporter Receives the mocked observables of each mocked repository still subscribed each time the mocks are reset
+     */
+    public void reportLeaksTo(LeakReporter leakReporter) {
+        for (RxMock mock : mocks) {
+            mock.reportLeaksTo(leakReporter);
         }
-    };
+    }
+
+    /**
+     * Resets every mocked repository, then closes the error rethrowing scopes of the expectations never matched.
+     */
+    public void resetMocks() {
+        try {
+            for (RxMock mock : mocks) {
+                mock.resetMocks();
+            }
+        } finally {
+            pendingExpectations.closeErrorScopes();
+        }
+    }
 
     private static final Func1<Object, RxMock> asRxMocks = new Func1<Object, RxMock>() {
         @Override
         public RxMock call(Object object) {
+            if (object instanceof RxMock) {
+                return (RxMock) object;
+            }
             return RxMock.from(object);
         }
     };
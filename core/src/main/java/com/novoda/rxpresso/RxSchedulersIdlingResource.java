@@ -0,0 +1,81 @@
+package com.novoda.rxpresso;
+
+import android.support.test.espresso.IdlingResource;
+
+import rx.functions.Action0;
+import rx.plugins.RxJavaPlugins;
+import rx.plugins.RxJavaSchedulersHook;
+import rx.schedulers.TrackingSchedulersHook;
+
+/**
+ * Idling resource busy while work is in flight on {@code Schedulers.io()} or {@code Schedulers.computation()}.
+ * Espresso then waits until the background Rx work of the app drained, without sleeps or custom idling resources.
+ */
+public final class RxSchedulersIdlingResource implements IdlingResource {
+
+    private static RxSchedulersIdlingResource instance;
+
+    private final TrackingSchedulersHook hook;
+
+    private volatile ResourceCallback resourceCallback;
+
+    /**
+     * Registers the schedulers hook tracking the work in flight.
+     * It must be called before {@code Schedulers} is first used, for example in the {@code onCreate} of your instrumentation runner.
+     *
+     * @return The idling resource to register in Espresso
+     */
+    public static synchronized RxSchedulersIdlingResource register() {
+        if (instance == null) {
+            instance = new RxSchedulersIdlingResource(registerHook());
+        }
+        return instance;
+    }
+
+    private static TrackingSchedulersHook registerHook() {
+        RxJavaPlugins plugins = RxJavaPlugins.getInstance();
+        try {
+            plugins.registerSchedulersHook(new TrackingSchedulersHook());
+        } catch (IllegalStateException e) {
+            // Another hook is already registered, reuse it if it is one of ours
+        }
+        RxJavaSchedulersHook hook = plugins.getSchedulersHook();
+        if (!(hook instanceof TrackingSchedulersHook)) {
+            throw new IllegalStateException(
+                    "A schedulers hook " + hook + " is already registered, register RxSchedulersIdlingResource before Schedulers is first used"
+            );
+        }
+        return (TrackingSchedulersHook) hook;
+    }
+
+    private RxSchedulersIdlingResource(TrackingSchedulersHook hook) {
+        this.hook = hook;
+        hook.setOnIdle(
+                new Action0() {
+                    @Override
+                    public void call() {
+                        ResourceCallback callback = resourceCallback;
+                        if (callback != null) {
+                            callback.onTransitionToIdle();
+                        }
+                    }
+                }
+        );
+    }
+
+    @Override
+    public String getName() {
+        return "RxSchedulers";
+    }
+
+    @Override
+    public boolean isIdleNow() {
+        return hook.inFlightCount() == 0;
+    }
+
+    @Override
+    public void registerIdleTransitionCallback(ResourceCallback resourceCallback) {
+        this.resourceCallback = resourceCallback;
+    }
+
+}
@@ -4,18 +4,23 @@ import android.support.test.espresso.IdlingResource;
 
 import com.novoda.rxpresso.mock.RxMock;
 
+import java.util.concurrent.TimeUnit;
+
 import rx.Observable;
+import rx.schedulers.TestScheduler;
 
 public class With<T> implements IdlingResource {
 
     private final RxMock mock;
     private final Observable<T> observable;
+    private final PendingExpectations pendingExpectations;
     private ResourceCallback resourceCallback;
     private Expect<T> expect;
 
-    With(RxMock mock, Observable<T> observable) {
+    With(RxMock mock, Observable<T> observable, PendingExpectations pendingExpectations) {
         this.mock = mock;
         this.observable = observable;
+        this.pendingExpectations = pendingExpectations;
     }
 
     /**
@@ -25,7 +30,36 @@ public class With<T> implements IdlingResource {
      * @return An Expect object to trigger the injection and setup what event to expect and wait for.
      */
     public Expect<T> withEventsFrom(Observable<T> source) {
-        expect = new Expect<>(mock, source, observable);
+        return expectEventsFrom(source, false, null);
+    }
+
+    /**
+     * Setup the injection of the events from a {@code source} running on virtual time into the mocked {@code observable}
+     * Timed sources ({@code interval}, {@code delay}, {@code timer}...) created on {@code scheduler} run instantly,
+     * use {@link Expect#advancingTimeBy(long, TimeUnit)} or {@link Expect#advanceTimeBy(long, TimeUnit)} to move time forward.
+     *
+     * @param source    An observable providing the events to inject, scheduled on {@code scheduler}
+     * @param scheduler The virtual time scheduler {@code source} is scheduled on
+     * @return An Expect object to trigger the injection and setup what event to expect and wait for.
+     */
+    public Expect<T> withEventsFrom(Observable<T> source, TestScheduler scheduler) {
+        return expectEventsFrom(source, false, scheduler);
+    }
+
+    /**
+     * Setup the injection of the events from the {@code source} into the mocked {@code observable}, only requesting from
+     * {@code source} as many events as the subscribers of {@code observable} requested.
+     * Use it to stream large sources without overflowing the buffers of the app's subscribers.
+     *
+     * @param source An observable providing the events to inject, it should support backpressure
+     * @return An Expect object to trigger the injection and setup what event to expect and wait for.
+     */
+    public Expect<T> withEventsOnDemandFrom(Observable<T> source) {
+        return expectEventsFrom(source, true, null);
+    }
+
+    private Expect<T> expectEventsFrom(Observable<T> source, boolean onDemand, TestScheduler scheduler) {
+        expect = new Expect<>(mock, source, observable, onDemand, scheduler, pendingExpectations);
         expect.registerIdleTransitionCallback(
                 new ResourceCallback() {
                     @Override
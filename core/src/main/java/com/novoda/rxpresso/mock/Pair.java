@@ -1,66 +0,0 @@
-package com.novoda.rxpresso.mock;
-
-class Pair<F, S> {
-    public final F first;
-    public final S second;
-
-    /**
-     * Constructor for a Pair.
-     *
-     * @param first the first object in the Pair
-     * @param second the second object in the pair
-     */
-    public Pair(F first, S second) {
-        this.first = first;
-        this.second = second;
-    }
-
-    /**
-     * Checks the two objects for equality by delegating to their respective
-     * {@link Object#equals(Object)} methods.
-     *
-     * @param o the {@link Pair} to which this one is to be checked for equality
-     * @return true if the underlying objects of the Pair are both considered
-     *         equal
-     */
-    @Override
-    public boolean equals(Object o) {
-        if (this == o) {
-            return true;
-        }
-        if (o == null || getClass() != o.getClass()) {
-            return false;
-        }
-
-        Pair pair = (Pair) o;
-
-        if (first != null ? !first.equals(pair.first) : pair.first != null) {
-            return false;
-        }
-        if (second != null ? !second.equals(pair.second) : pair.second != null) {
-            return false;
-        }
-
-        return true;
-    }
-
-    /**
-     * Compute a hash code using the hash codes of the underlying objects
-     *
-     * @return a hashcode of the Pair
-     */
-    @Override
-    public int hashCode() {
-        return (first == null ? 0 : first.hashCode()) ^ (second == null ? 0 : second.hashCode());
-    }
-
-    /**
-     * Convenience method for creating an appropriately typed pair.
-     * @param a the first object in the Pair
-     * @param b the second object in the pair
-     * @return a Pair that is templatized with the types of a and b
-     */
-    public static <A, B> Pair <A, B> create(A a, B b) {
-        return new Pair<A, B>(a, b);
-    }
-}
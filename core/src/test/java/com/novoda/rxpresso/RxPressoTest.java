@@ -3,16 +3,23 @@ package com.novoda.rxpresso;
 import android.support.test.espresso.IdlingResource;
 
 import com.novoda.rxpresso.matcher.RxMatcher;
+import com.novoda.rxpresso.mock.RxMock;
 import com.novoda.rxpresso.mock.SingleEvent;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.Mockito;
 
+import java.util.concurrent.TimeUnit;
+
 import rx.Notification;
 import rx.Observable;
+import rx.functions.Func1;
+import rx.plugins.RxJavaPlugins;
+import rx.schedulers.TestScheduler;
 
 import static com.novoda.rxpresso.matcher.RxExpect.any;
 import static org.fest.assertions.api.Assertions.assertThat;
@@ -35,6 +42,11 @@ public class RxPressoTest {
         rxPresso.registerIdleTransitionCallback(resourceCallback);
     }
 
+    @After
+    public void tearDown() throws Exception {
+        rxPresso.resetMocks();
+    }
+
     @Test
     public void itSendsEventsToMockedObservable() throws Exception {
         Observable<Integer> foo = mockedRepo.foo(3);
@@ -67,6 +79,13 @@ public class RxPressoTest {
         assertThat(result2).isEqualTo(24);
     }
 
+    @Test
+    public void itFailsIfTheObservableIsNotProvidedByTheMockedRepositories() throws Exception {
+        expectedException.expect(IllegalArgumentException.class);
+
+        rxPresso.given(Observable.just(42));
+    }
+
     @Test
     public void resetMocksResetsPipelines() throws Exception {
         Observable<Integer> foo = mockedRepo.foo(3);
@@ -115,6 +134,172 @@ public class RxPressoTest {
         assertThat(rxPresso.isIdleNow()).isTrue();
     }
 
+    @Test
+    public void idlingResourceStaysBusyUntilEveryExpectationIsMatched() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(1);
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42))
+                .expect(any(Integer.class));
+        rxPresso.given(bar)
+                .withEventsFrom(SingleEvent.onNext(24))
+                .expect(any(Integer.class));
+
+        foo.toBlocking().first();
+
+        assertThat(rxPresso.isIdleNow()).isFalse();
+
+        bar.toBlocking().first();
+
+        assertThat(rxPresso.isIdleNow()).isTrue();
+        Mockito.verify(resourceCallback).onTransitionToIdle();
+    }
+
+    @Test
+    public void batchInjectsEveryStepAndTransitionsToIdleOnceAllAreMatched() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(1);
+
+        rxPresso.batch()
+                .given(foo).withEventsFrom(SingleEvent.onNext(42)).expect(any(Integer.class))
+                .given(bar).withEventsFrom(SingleEvent.onNext(24)).expect(any(Integer.class))
+                .inject();
+
+        Integer result = foo.toBlocking().first();
+
+        assertThat(result).isEqualTo(42);
+        assertThat(rxPresso.isIdleNow()).isFalse();
+
+        Integer result2 = bar.toBlocking().first();
+
+        assertThat(result2).isEqualTo(24);
+        assertThat(rxPresso.isIdleNow()).isTrue();
+        Mockito.verify(resourceCallback).onTransitionToIdle();
+    }
+
+    @Test
+    public void itRunsTimedSourcesOnVirtualTime() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> everyMinute = Observable.interval(1, TimeUnit.MINUTES, scheduler)
+                .map(
+                        new Func1<Long, Integer>() {
+                            @Override
+                            public Integer call(Long tick) {
+                                return tick.intValue();
+                            }
+                        }
+                );
+
+        Expect<Integer> expect = rxPresso.given(foo)
+                .withEventsFrom(everyMinute, scheduler)
+                .advancingTimeBy(3, TimeUnit.MINUTES);
+        expect.expect(any(Integer.class));
+
+        assertThat(foo.toBlocking().first()).isEqualTo(2);
+
+        expect.advanceTimeBy(2, TimeUnit.MINUTES);
+
+        assertThat(foo.toBlocking().first()).isEqualTo(4);
+    }
+
+    @Test
+    public void itFailsTheNextIdlenessCheckIfNoEventMatchesBeforeTheDeadline() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        Observable<Integer> foo = mockedRepo.foo(3);
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42).delay(10, TimeUnit.SECONDS, scheduler), scheduler)
+                .expect(any(Integer.class), 5, TimeUnit.SECONDS);
+        scheduler.advanceTimeBy(5, TimeUnit.SECONDS);
+
+        expectedException.expectMessage("Expected Notification with kind OnNext within 5 SECONDS but got [");
+
+        rxPresso.isIdleNow();
+    }
+
+    @Test
+    public void itFailsTheNextIdleCheckWhenABatchMissesItsDeadline() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        Observable<Integer> bar = mockedRepo.foo(1);
+        foo.subscribe();
+
+        rxPresso.batch()
+                .given(foo).withEventsFrom(SingleEvent.onNext(42)).expect(any(Integer.class))
+                .given(bar).withEventsFrom(SingleEvent.onNext(24)).expect(any(Integer.class))
+                .inject(50, TimeUnit.MILLISECONDS);
+
+        expectedException.expectMessage("Expected [Notification with kind OnNext] within 50 MILLISECONDS but no matching event was received");
+
+        for (int i = 0; i < 100 && !rxPresso.isIdleNow(); i++) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void itListsTheJournalOfEveryMockWaitingWhenABatchMissesItsDeadline() throws Exception {
+        TestRepository otherRepo = Mockito.mock(TestRepository.class);
+        RxPresso bothRepos = RxPresso.from(mockedRepo, otherRepo);
+
+        bothRepos.batch()
+                .given(mockedRepo.foo(3)).withEventsFrom(SingleEvent.onNext(42)).expect(any(Integer.class))
+                .given(mockedRepo.foo(1)).withEventsFrom(SingleEvent.onNext(24)).expect(any(Integer.class))
+                .given(otherRepo.foo(3)).withEventsFrom(SingleEvent.onNext(42)).expect(any(Integer.class))
+                .inject(50, TimeUnit.MILLISECONDS);
+
+        String message = null;
+        try {
+            for (int i = 0; i < 100 && !bothRepos.isIdleNow(); i++) {
+                Thread.sleep(10);
+            }
+        } catch (RuntimeException e) {
+            message = e.getMessage();
+        }
+
+        assertThat(message).isNotNull();
+        assertThat(message.split("Last events delivered:", -1)).hasSize(3);
+    }
+
+    @Test
+    public void resetMocksStopsRethrowingErrorsForTheExpectationsNeverMatched() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42))
+                .expect(any(Integer.class));
+
+        rxPresso.resetMocks();
+
+        RxJavaPlugins.getInstance().getErrorHandler().handleError(new RuntimeException("unrelated"));
+    }
+
+    @Test
+    public void itTransitionsToIdleIfAnEventMatchesBeforeTheDeadline() throws Exception {
+        TestScheduler scheduler = new TestScheduler();
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42).delay(1, TimeUnit.SECONDS, scheduler), scheduler)
+                .expect(any(Integer.class), 5, TimeUnit.SECONDS);
+        scheduler.advanceTimeBy(10, TimeUnit.SECONDS);
+
+        assertThat(rxPresso.isIdleNow()).isTrue();
+        Mockito.verify(resourceCallback).onTransitionToIdle();
+    }
+
+    @Test
+    public void itRecordsTheMatchOfAnExpectation() throws Exception {
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.onNext(42))
+                .expect(any(Integer.class));
+
+        assertThat(RxMock.ownerOf(foo).getMetricsFor(foo).matches()).isEqualTo(1);
+    }
+
     @Test
     public void itFailsIfNoEventMatchingMatcherIsReceived() throws Exception {
         expectedException.expectMessage("Expected Notification with kind OnNext but completed without matching");
@@ -129,6 +314,18 @@ public class RxPressoTest {
         assertThat(result).isEqualTo(42);
     }
 
+    @Test
+    public void itDumpsTheJournalWhenAnExpectationFails() throws Exception {
+        expectedException.expectMessage("Last events delivered:\n#0 ");
+        expectedException.expectMessage("foo(3) OnCompleted\n");
+        Observable<Integer> foo = mockedRepo.foo(3);
+        foo.subscribe();
+
+        rxPresso.given(foo)
+                .withEventsFrom(SingleEvent.<Integer>onCompleted())
+                .expectOnly(any(Integer.class));
+    }
+
     @Test
     public void itFailsIfAnEventNotMatchingMatcherIsReceivedWhenUsingExpectOnly() throws Exception {
         expectedException.expectMessage("Expected Notification with kind OnNext but got");
@@ -0,0 +1,77 @@
+package com.novoda.rxpresso.processor;
+
+import com.novoda.rxpresso.mock.RxMocked;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+/**
+ * Generates a stub for each interface annotated with {@link RxMocked}, see {@link StubWriter} for what it looks like.
+ */
+public class RxMockedProcessor extends AbstractProcessor {
+
+    @Override
+    public Set<String> getSupportedAnnotationTypes() {
+        return Collections.singleton(RxMocked.class.getCanonicalName());
+    }
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(RxMocked.class)) {
+            if (element.getKind() != ElementKind.INTERFACE) {
+                error(element, "@RxMocked only applies to interfaces, " + element + " is a " + element.getKind().name().toLowerCase());
+            } else if (isPrivate(element)) {
+                error(element, "@RxMocked interfaces can't be private, " + element + " is not visible to its stub");
+            } else {
+                generateStubOf((TypeElement) element);
+            }
+        }
+        return true;
+    }
+
+    private static boolean isPrivate(Element element) {
+        for (Element enclosing = element; enclosing.getKind() != ElementKind.PACKAGE; enclosing = enclosing.getEnclosingElement()) {
+            if (enclosing.getModifiers().contains(Modifier.PRIVATE)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void generateStubOf(TypeElement repository) {
+        StubWriter stub = new StubWriter(processingEnv, repository);
+        try {
+            JavaFileObject file = processingEnv.getFiler().createSourceFile(stub.qualifiedName(), repository);
+            Writer writer = file.openWriter();
+            try {
+                writer.write(stub.source());
+            } finally {
+                writer.close();
+            }
+        } catch (IOException e) {
+            error(repository, "Could not write the stub of " + repository + ": " + e.getMessage());
+        }
+    }
+
+    private void error(Element element, String message) {
+        processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+}
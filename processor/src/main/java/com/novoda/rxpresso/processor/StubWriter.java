@@ -0,0 +1,282 @@
+package com.novoda.rxpresso.processor;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Writes the source of the stub of an {@link com.novoda.rxpresso.mock.RxMocked} interface.
+ * <p>
+ * The stub extends {@link com.novoda.rxpresso.mock.MockStub} and implements every abstract method of the interface,
+ * including the inherited ones. Each Observable-returning method has its own
+ * {@link com.novoda.rxpresso.mock.StubMethod} constant, typed with the events of the Observable when they have
+ * no type variable, and passes it with its arguments to the RxMock controlling the stub.
+ * The other methods return 0, false or null.
+ */
+final class StubWriter {
+
+    private static final String STUB_SUFFIX = "_RxMock";
+    private static final String INDENT = "    ";
+
+    private final Types types;
+    private final Elements elements;
+    private final TypeElement repository;
+    private final DeclaredType repositoryType;
+    private final TypeMirror observable;
+    private final Set<String> objectSignatures = new HashSet<>();
+    private final String packageName;
+    private final String simpleName;
+
+    StubWriter(ProcessingEnvironment processingEnv, TypeElement repository) {
+        this.types = processingEnv.getTypeUtils();
+        this.elements = processingEnv.getElementUtils();
+        this.repository = repository;
+        this.repositoryType = (DeclaredType) repository.asType();
+        this.observable = types.erasure(elements.getTypeElement("rx.Observable").asType());
+        this.packageName = elements.getPackageOf(repository).getQualifiedName().toString();
+        this.simpleName = stubNameOf(repository);
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getTypeElement("java.lang.Object").getEnclosedElements())) {
+            objectSignatures.add(signatureOf(method, (ExecutableType) method.asType()));
+        }
+    }
+
+    /**
+     * Nested interfaces are named after every enclosing type, {@code Outer.Repository} gives {@code Outer_Repository_RxMock}.
+     */
+    private static String stubNameOf(TypeElement repository) {
+        StringBuilder name = new StringBuilder(repository.getSimpleName()).append(STUB_SUFFIX);
+        for (Element enclosing = repository.getEnclosingElement(); enclosing.getKind() != ElementKind.PACKAGE; enclosing = enclosing.getEnclosingElement()) {
+            name.insert(0, enclosing.getSimpleName() + "_");
+        }
+        return name.toString();
+    }
+
+    String qualifiedName() {
+        return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+    }
+
+    String source() {
+        StringBuilder constants = new StringBuilder();
+        StringBuilder methods = new StringBuilder();
+        Set<String> signatures = new HashSet<>();
+        Set<String> constantNames = new HashSet<>();
+
+        for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers(repository))) {
+            if (!method.getModifiers().contains(Modifier.ABSTRACT)) {
+                continue;
+            }
+            ExecutableType type = (ExecutableType) types.asMemberOf(repositoryType, method);
+            String signature = signatureOf(method, type);
+            if (objectSignatures.contains(signature) || !signatures.add(signature)) {
+                continue;
+            }
+            if (types.isSameType(types.erasure(type.getReturnType()), observable)) {
+                String constant = uniqueConstantName(method, constantNames);
+                writeConstant(constants, method, type, constant);
+                writeMockedMethod(methods, method, type, constant);
+            } else {
+                writeDefaultMethod(methods, method, type);
+            }
+        }
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) {
+            source.append("package ").append(packageName).append(";\n\n");
+        }
+        source.append("// Generated by RxMockedProcessor from ").append(repository.getQualifiedName()).append(", do not edit.\n");
+        if (repository.getModifiers().contains(Modifier.PUBLIC)) {
+            source.append("public ");
+        }
+        source.append("final class ").append(simpleName).append(typeParametersOf(repository.getTypeParameters()))
+                .append(" extends com.novoda.rxpresso.mock.MockStub implements ").append(repositoryType).append(" {\n");
+        source.append(constants);
+        source.append(methods);
+        source.append("\n}\n");
+        return source.toString();
+    }
+
+    private void writeConstant(StringBuilder out, ExecutableElement method, ExecutableType type, String constant) {
+        String events = eventTypeOf(type.getReturnType());
+        out.append('\n');
+        if (events == null) {
+            out.append(INDENT).append("@SuppressWarnings(\"rawtypes\")\n");
+            out.append(INDENT).append("private static final com.novoda.rxpresso.mock.StubMethod ").append(constant)
+                    .append(" = new com.novoda.rxpresso.mock.StubMethod(\"").append(method.getSimpleName()).append("\");\n");
+        } else {
+            out.append(INDENT).append("private static final com.novoda.rxpresso.mock.StubMethod<").append(events).append("> ").append(constant)
+                    .append(" = new com.novoda.rxpresso.mock.StubMethod<>(\"").append(method.getSimpleName()).append("\");\n");
+        }
+    }
+
+    private void writeMockedMethod(StringBuilder out, ExecutableElement method, ExecutableType type, String constant) {
+        out.append('\n');
+        if (eventTypeOf(type.getReturnType()) == null) {
+            out.append(INDENT).append("@SuppressWarnings(\"unchecked\")\n");
+        }
+        writeDeclaration(out, method, type);
+        out.append(INDENT).append(INDENT).append("return observableFor(").append(constant).append(", ");
+        List<? extends TypeMirror> parameters = type.getParameterTypes();
+        if (parameters.isEmpty()) {
+            out.append("com.novoda.rxpresso.mock.MockStub.NO_ARGUMENTS");
+        } else {
+            out.append("new Object[]{");
+            for (int i = 0; i < parameters.size(); i++) {
+                if (i > 0) {
+                    out.append(", ");
+                }
+                out.append(method.getParameters().get(i).getSimpleName());
+            }
+            out.append('}');
+        }
+        out.append(");\n");
+        out.append(INDENT).append("}\n");
+    }
+
+    private void writeDefaultMethod(StringBuilder out, ExecutableElement method, ExecutableType type) {
+        out.append('\n');
+        writeDeclaration(out, method, type);
+        switch (type.getReturnType().getKind()) {
+            case VOID:
+                break;
+            case BOOLEAN:
+                out.append(INDENT).append(INDENT).append("return false;\n");
+                break;
+            case BYTE:
+            case SHORT:
+            case CHAR:
+            case INT:
+            case LONG:
+            case FLOAT:
+            case DOUBLE:
+                out.append(INDENT).append(INDENT).append("return 0;\n");
+                break;
+            default:
+                out.append(INDENT).append(INDENT).append("return null;\n");
+                break;
+        }
+        out.append(INDENT).append("}\n");
+    }
+
+    private void writeDeclaration(StringBuilder out, ExecutableElement method, ExecutableType type) {
+        out.append(INDENT).append("@Override\n");
+        out.append(INDENT).append("public ");
+        String typeParameters = typeParametersOf(method.getTypeParameters());
+        if (!typeParameters.isEmpty()) {
+            out.append(typeParameters).append(' ');
+        }
+        out.append(type.getReturnType()).append(' ').append(method.getSimpleName()).append('(');
+        List<? extends TypeMirror> parameters = type.getParameterTypes();
+        for (int i = 0; i < parameters.size(); i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            TypeMirror parameter = parameters.get(i);
+            if (method.isVarArgs() && i == parameters.size() - 1) {
+                out.append(((ArrayType) parameter).getComponentType()).append("...");
+            } else {
+                out.append(parameter);
+            }
+            out.append(' ').append(method.getParameters().get(i).getSimpleName());
+        }
+        out.append(')');
+        List<? extends TypeMirror> thrown = type.getThrownTypes();
+        for (int i = 0; i < thrown.size(); i++) {
+            out.append(i == 0 ? " throws " : ", ").append(thrown.get(i));
+        }
+        out.append(" {\n");
+    }
+
+    private static String typeParametersOf(List<? extends TypeParameterElement> typeParameters) {
+        if (typeParameters.isEmpty()) {
+            return "";
+        }
+        StringBuilder out = new StringBuilder("<");
+        for (int i = 0; i < typeParameters.size(); i++) {
+            TypeParameterElement typeParameter = typeParameters.get(i);
+            if (i > 0) {
+                out.append(", ");
+            }
+            out.append(typeParameter.getSimpleName());
+            List<? extends TypeMirror> bounds = typeParameter.getBounds();
+            for (int j = 0; j < bounds.size(); j++) {
+                if (j == 0 && bounds.get(j).toString().equals("java.lang.Object")) {
+                    continue;
+                }
+                out.append(j == 0 ? " extends " : " & ").append(bounds.get(j));
+            }
+        }
+        return out.append('>').toString();
+    }
+
+    /**
+     * @return The type of the events of {@code observableType} if it can be used in a static constant, null if the
+     * Observable is raw or its events are a wildcard or depend on a type variable
+     */
+    private static String eventTypeOf(TypeMirror observableType) {
+        List<? extends TypeMirror> typeArguments = ((DeclaredType) observableType).getTypeArguments();
+        if (typeArguments.isEmpty() || !isConcrete(typeArguments.get(0))) {
+            return null;
+        }
+        return typeArguments.get(0).toString();
+    }
+
+    private static boolean isConcrete(TypeMirror type) {
+        switch (type.getKind()) {
+            case DECLARED:
+                for (TypeMirror typeArgument : ((DeclaredType) type).getTypeArguments()) {
+                    if (!isConcrete(typeArgument)) {
+                        return false;
+                    }
+                }
+                return true;
+            case ARRAY:
+                return isConcrete(((ArrayType) type).getComponentType());
+            default:
+                return type.getKind().isPrimitive();
+        }
+    }
+
+    private String signatureOf(ExecutableElement method, ExecutableType type) {
+        StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+        for (TypeMirror parameter : type.getParameterTypes()) {
+            signature.append(types.erasure(parameter)).append(',');
+        }
+        return signature.append(')').toString();
+    }
+
+    /**
+     * {@code getUser} gives {@code GET_USER}, overloads are numbered {@code GET_USER_2}, {@code GET_USER_3}...
+     */
+    private static String uniqueConstantName(ExecutableElement method, Set<String> constantNames) {
+        String name = method.getSimpleName().toString();
+        StringBuilder constant = new StringBuilder();
+        for (int i = 0; i < name.length(); i++) {
+            char c = name.charAt(i);
+            if (Character.isUpperCase(c) && i > 0 && !Character.isUpperCase(name.charAt(i - 1))) {
+                constant.append('_');
+            }
+            constant.append(Character.toUpperCase(c));
+        }
+        String unique = constant.toString();
+        for (int overload = 2; !constantNames.add(unique); overload++) {
+            unique = constant + "_" + overload;
+        }
+        return unique;
+    }
+
+}
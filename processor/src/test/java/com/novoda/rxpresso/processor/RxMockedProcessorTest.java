@@ -0,0 +1,202 @@
+package com.novoda.rxpresso.processor;
+
+import com.novoda.rxpresso.mock.MockStub;
+import com.novoda.rxpresso.mock.RxMock;
+import com.novoda.rxpresso.mock.SingleEvent;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.StandardLocation;
+import javax.tools.ToolProvider;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import rx.Observable;
+
+import static org.fest.assertions.api.Assertions.assertThat;
+
+public class RxMockedProcessorTest {
+
+    private static final String REPOSITORY = "package test;\n"
+            + "import com.novoda.rxpresso.mock.RxMocked;\n"
+            + "import java.util.List;\n"
+            + "import rx.Observable;\n"
+            + "interface BaseRepository<T> {\n"
+            + "    Observable<T> find(String id);\n"
+            + "}\n"
+            + "@RxMocked\n"
+            + "public interface DataRepository extends BaseRepository<Integer> {\n"
+            + "    Observable<List<String>> getNames(int page);\n"
+            + "    Observable<List<String>> getNames(String... ids);\n"
+            + "    <T> Observable<T> get(Class<T> type);\n"
+            + "    int size();\n"
+            + "    void clear();\n"
+            + "    String toString();\n"
+            + "}\n";
+
+    private DiagnosticCollector<JavaFileObject> diagnostics;
+    private File output;
+
+    @Before
+    public void setUp() throws Exception {
+        diagnostics = new DiagnosticCollector<>();
+        output = File.createTempFile("rxmocked", "");
+        output.delete();
+        output.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        delete(output);
+    }
+
+    @Test
+    public void itGeneratesAStubRoutingEachInvocationToItsOwnPipeline() throws Exception {
+        Object stub = newStub();
+        RxMock rxMock = RxMock.from(stub);
+
+        Observable<Integer> first = invoke(stub, "find", new Class<?>[]{String.class}, "1");
+        Observable<Integer> second = invoke(stub, "find", new Class<?>[]{String.class}, "2");
+        Observable<Integer> firstAgain = invoke(stub, "find", new Class<?>[]{String.class}, "1");
+        rxMock.sendEventsFrom(SingleEvent.onNext(42)).to(first);
+
+        assertThat(stub).isInstanceOf(MockStub.class);
+        assertThat(rxMock.provides(second)).isTrue();
+        assertThat(firstAgain).isSameAs(first);
+        assertThat(first.toBlocking().first()).isEqualTo(42);
+    }
+
+    @Test
+    public void itKeepsOverloadsAndVarargsApart() throws Exception {
+        Object stub = newStub();
+        RxMock rxMock = RxMock.from(stub);
+
+        Observable<List<String>> byPage = invoke(stub, "getNames", new Class<?>[]{int.class}, 1);
+        Observable<List<String>> byIds = invoke(stub, "getNames", new Class<?>[]{String[].class}, (Object) new String[]{"a", "b"});
+        Observable<List<String>> byIdsAgain = invoke(stub, "getNames", new Class<?>[]{String[].class}, (Object) new String[]{"a", "b"});
+        rxMock.sendEventsFrom(SingleEvent.onNext(Collections.singletonList("a"))).to(byIds);
+
+        assertThat(byPage).isNotSameAs(byIds);
+        assertThat(byIdsAgain).isSameAs(byIds);
+        assertThat(byIds.toBlocking().first()).containsOnly("a");
+    }
+
+    @Test
+    public void itReturnsDefaultsFromOtherMethods() throws Exception {
+        Object stub = newStub();
+
+        Object size = stub.getClass().getMethod("size").invoke(stub);
+
+        assertThat(size).isEqualTo(0);
+        assertThat(stub.toString()).startsWith("Stub DataRepository_RxMock");
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void itRequiresAnRxMockBeforeProvidingObservables() throws Throwable {
+        Object stub = newStub();
+
+        try {
+            stub.getClass().getMethod("find", String.class).invoke(stub, "1");
+        } catch (java.lang.reflect.InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    @Test
+    public void itRejectsClasses() throws Exception {
+        boolean compiled = run("test.Repository", "package test;\n@com.novoda.rxpresso.mock.RxMocked\npublic class Repository {\n}\n");
+
+        assertThat(compiled).isFalse();
+        assertThat(errors()).containsOnly("@RxMocked only applies to interfaces, test.Repository is a class");
+    }
+
+    private Object newStub() throws Exception {
+        return compile("test.DataRepository", REPOSITORY).loadClass("test.DataRepository_RxMock").newInstance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> Observable<T> invoke(Object stub, String name, Class<?>[] parameterTypes, Object... args) throws Exception {
+        return (Observable<T>) stub.getClass().getMethod(name, parameterTypes).invoke(stub, args);
+    }
+
+    private ClassLoader compile(String className, String source) throws IOException {
+        if (!run(className, source)) {
+            throw new AssertionError("Compilation failed " + errors());
+        }
+        return new URLClassLoader(new URL[]{output.toURI().toURL()}, getClass().getClassLoader());
+    }
+
+    private boolean run(String className, String source) throws IOException {
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, null, null);
+        try {
+            fileManager.setLocation(StandardLocation.CLASS_OUTPUT, Collections.singleton(output));
+            fileManager.setLocation(StandardLocation.SOURCE_OUTPUT, Collections.singleton(output));
+            JavaCompiler.CompilationTask task = compiler.getTask(
+                    null,
+                    fileManager,
+                    diagnostics,
+                    Arrays.asList("-classpath", System.getProperty("java.class.path")),
+                    null,
+                    Collections.singleton(new Source(className, source))
+            );
+            task.setProcessors(Collections.singleton(new RxMockedProcessor()));
+            return task.call();
+        } finally {
+            fileManager.close();
+        }
+    }
+
+    private List<String> errors() {
+        List<String> errors = new ArrayList<>();
+        for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+            if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+                errors.add(diagnostic.getMessage(null));
+            }
+        }
+        return errors;
+    }
+
+    private static void delete(File file) {
+        File[] children = file.listFiles();
+        if (children != null) {
+            for (File child : children) {
+                delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private static class Source extends SimpleJavaFileObject {
+
+        private final String source;
+
+        Source(String className, String source) {
+            super(URI.create("string:///" + className.replace('.', '/') + Kind.SOURCE.extension), Kind.SOURCE);
+            this.source = source;
+        }
+
+        @Override
+        public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+            return source;
+        }
+
+    }
+
+}